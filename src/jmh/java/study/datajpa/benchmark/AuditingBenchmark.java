@@ -0,0 +1,59 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.auditing.AuditingHandler;
+import org.springframework.data.auditing.CurrentDateTimeProvider;
+import org.springframework.data.jpa.mapping.JpaMetamodelMappingContext;
+import org.springframework.data.mapping.context.PersistentEntities;
+import study.datajpa.audit.AuditListener;
+import study.datajpa.audit.AuditStamps;
+import study.datajpa.entity.Member;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//엔티티 하나를 등록할 때 audit 필드를 채우는 비용
+//이전 방식: AuditingEntityListener(AuditingHandler) + LocalDateTime.now() + 호출마다 UUID.randomUUID() 등록자
+//지금 방식: AuditListener + CoarseClock + 요청/flush마다 캐시한 등록자
+//UUID.randomUUID()는 스레드가 많을수록 느려지므로 -t 로 스레드 수를 바꿔가며 비교한다
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class AuditingBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private AuditingHandler springDataHandler;
+    private AuditListener auditListener;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.run(BenchmarkApplication.defaultProperties());
+        springDataHandler = new AuditingHandler(PersistentEntities.of(context.getBean(JpaMetamodelMappingContext.class)));
+        springDataHandler.setAuditorAware(() -> Optional.of(UUID.randomUUID().toString()));
+        springDataHandler.setDateTimeProvider(CurrentDateTimeProvider.INSTANCE);
+        auditListener = new AuditListener(context.getBean(AuditStamps.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Member springDataAuditing() {
+        return springDataHandler.markCreated(new Member("audit", 10));
+    }
+
+    @Benchmark
+    public Member auditListener() {
+        Member member = new Member("audit", 10);
+        auditListener.prePersist(member);
+        return member;
+    }
+}
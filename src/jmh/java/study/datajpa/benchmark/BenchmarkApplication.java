@@ -0,0 +1,35 @@
+package study.datajpa.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//웹 없이 인메모리 H2로 애플리케이션을 띄운다, 2차 캐시와 p6spy는 끄고 DB 비용만 잰다
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static Map<String, Object> defaultProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.properties.hibernate.cache.use_second_level_cache", "false");
+        properties.put("spring.jpa.properties.hibernate.cache.use_query_cache", "false");
+        properties.put("decorator.datasource.enabled", "false"); //p6spy 오버헤드 제외
+        properties.put("logging.level.org.hibernate.SQL", "warn");
+        return properties;
+    }
+
+    static ConfigurableApplicationContext run(Map<String, Object> properties) {
+        String[] arguments = properties.entrySet().stream() //application.yml보다 우선하도록 커맨드라인 인자로 넘긴다
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(arguments);
+    }
+}
@@ -0,0 +1,55 @@
+package study.datajpa.benchmark;
+
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.openjdk.jmh.annotations.*;
+import study.datajpa.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//영속성 컨텍스트에 회원 N명(과 팀)을 올려두고 그중 changed명만 바꿨을 때 flush 한번의 비용, 0이면 변경 감지 비용만 남는다
+//바이트코드 향상이 없으면 flush마다 모든 엔티티의 스냅샷(BaseEntity audit 컬럼 포함)을 비교하고, 있으면 엔티티가 기록한 변경 필드만 본다
+//./gradlew jmh -PjmhArgs="EntityFlushBenchmark" 와 ./gradlew jmh -PnoEnhance -PjmhArgs="EntityFlushBenchmark" 를 비교
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EntityFlushBenchmark {
+
+    @Param({"0", "10"})
+    public int changed;
+
+    private EntityManager em;
+
+    @Setup(Level.Trial)
+    public void printEnhancement() {
+        System.out.println("# Bytecode enhancement: " + (SelfDirtinessTracker.class.isAssignableFrom(Member.class) ? "on" : "off"));
+    }
+
+    //조회와 변경은 측정에서 빼고 flush만 잰다, 끝나면 롤백해서 다음 호출도 같은 데이터
+    @Setup(Level.Invocation)
+    public void load(MemberBenchmarkData data) {
+        em = data.context.getBean(EntityManagerFactory.class).createEntityManager();
+        em.getTransaction().begin();
+        List<Member> members = em.createQuery("select m from Member m join fetch m.team", Member.class).getResultList();
+        for (int i = 0; i < changed; i++) {
+            Member member = members.get(i * members.size() / changed);
+            member.setAge(member.getAge() + 1);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public void flush() {
+        em.flush();
+    }
+}
@@ -0,0 +1,64 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.service.MemberImportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+//애플리케이션을 띄우고 @Param 개수만큼 팀/회원을 넣어둔 상태, 벤치마크끼리 공유
+@State(Scope.Benchmark)
+public class MemberBenchmarkData {
+
+    @Param({"100", "1000", "10000"})
+    public int members;
+
+    @Param({"10", "100"})
+    public int teams;
+
+    ConfigurableApplicationContext context;
+    MemberRepository memberRepository;
+    TransactionTemplate readOnly;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.run(properties());
+        memberRepository = context.getBean(MemberRepository.class);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        seed(context.getBean(MemberImportService.class));
+    }
+
+    protected Map<String, Object> properties() {
+        return BenchmarkApplication.defaultProperties();
+    }
+
+    private void seed(MemberImportService importService) {
+        List<Team> teamList = new ArrayList<>(teams);
+        for (int i = 0; i < teams; i++) {
+            teamList.add(new Team("team" + i));
+        }
+        List<Member> memberList = new ArrayList<>(members);
+        for (int i = 0; i < members; i++) {
+            memberList.add(new Member("member" + i, i % 100, teamList.get(i % teams)));
+        }
+        importService.importAll(teamList, memberList);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    <T> T read(Function<MemberRepository, T> query) {
+        return readOnly.execute(status -> query.apply(memberRepository));
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.entity.Member;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//MemberRepository에서 회원과 팀을 같이 읽는 방법별 비교
+//매번 새 트랜잭션(새 영속성 컨텍스트)에서 전체 회원을 읽고 팀 이름까지 접근한다
+//할당량은 -prof gc (build.gradle의 jmh 태스크)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberFetchBenchmark {
+
+    //지연 로딩 + hibernate.default_batch_fetch_size, 팀 프록시를 in 절로 모아서 초기화
+    @State(Scope.Benchmark)
+    public static class BatchFetchData extends MemberBenchmarkData {
+
+        @Override
+        protected Map<String, Object> properties() {
+            Map<String, Object> properties = super.properties();
+            properties.put("spring.jpa.properties.hibernate.default_batch_fetch_size", "100");
+            return properties;
+        }
+    }
+
+    @Benchmark
+    public void lazy(MemberBenchmarkData data, Blackhole bh) { //팀 수만큼 추가 select (N+1)
+        data.read(repository -> consumeTeams(repository.findMemberCustom(), bh));
+    }
+
+    @Benchmark
+    public void lazyBatchFetch(BatchFetchData data, Blackhole bh) {
+        data.read(repository -> consumeTeams(repository.findMemberCustom(), bh));
+    }
+
+    @Benchmark
+    public void fetchJoin(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> consumeTeams(repository.findMemberFetchJoin(), bh));
+    }
+
+    @Benchmark
+    public void entityGraph(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> consumeTeams(repository.findMemberEntityGraph(), bh));
+    }
+
+    @Benchmark
+    public void entityGraphFindAll(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> consumeTeams(repository.findAll(), bh));
+    }
+
+    @Benchmark
+    public void dtoProjection(MemberBenchmarkData data, Blackhole bh) { //엔티티를 영속성 컨텍스트에 올리지 않는다
+        data.read(repository -> {
+            for (MemberDto dto : repository.findMemberDto()) {
+                bh.consume(dto.getTeamName());
+            }
+            return null;
+        });
+    }
+
+    private static Void consumeTeams(List<Member> members, Blackhole bh) {
+        for (Member member : members) {
+            bh.consume(member.getTeam().getName());
+        }
+        return null;
+    }
+}
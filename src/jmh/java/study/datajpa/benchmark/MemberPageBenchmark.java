@@ -0,0 +1,40 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import study.datajpa.dto.MemberDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//GET /members 한 페이지를 만드는 비용, 엔티티 조회 후 DTO 변환 vs 생성자 프로젝션
+//./gradlew jmh -PjmhArgs="MemberPageBenchmark -p members=10000"
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemberPageBenchmark {
+
+    @Param({"100", "2000"}) //spring.data.web.pageable.max-page-size
+    public int pageSize;
+
+    private PageRequest pageRequest;
+
+    @Setup
+    public void setUp() {
+        pageRequest = PageRequest.of(0, pageSize, Sort.by("username"));
+    }
+
+    @Benchmark
+    public List<MemberDto> entityPage(MemberBenchmarkData data) { //이전 방식, teamName은 채워지지 않는다
+        return data.read(repository -> repository.findSliceBy(pageRequest).map(MemberDto::new).getContent());
+    }
+
+    @Benchmark
+    public List<MemberDto> dtoPage(MemberBenchmarkData data) {
+        return data.read(repository -> repository.findMemberDtoSlice(pageRequest).getContent());
+    }
+}
@@ -0,0 +1,84 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageRequest;
+import study.datajpa.projection.ProjectionRepositoryFactoryBean;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.UsernameOnly;
+import study.datajpa.repository.UsernameOnlyDto;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//인터페이스 프로젝션 row 하나를 만드는 비용, JDK 프록시 vs @GeneratedProjection 생성 클래스
+//JPQL(파생 쿼리)은 생성자 프로젝션(UsernameOnlyDto)을 기준으로 같이 잰다, 네이티브 쿼리는 생성자 프로젝션이 없어서 둘만 비교
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MemberProjectionBenchmark {
+
+    //datajpa.projection.generated=false, 기존 프록시
+    @State(Scope.Benchmark)
+    public static class ProxyData extends MemberBenchmarkData {
+
+        @Override
+        protected Map<String, Object> properties() {
+            Map<String, Object> properties = super.properties();
+            properties.put(ProjectionRepositoryFactoryBean.GENERATED, "false");
+            return properties;
+        }
+    }
+
+    @Benchmark
+    public void jpqlDto(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> {
+            for (UsernameOnlyDto dto : repository.findProjectionsByAgeGreaterThanEqual(0, UsernameOnlyDto.class)) {
+                bh.consume(dto.getUsername());
+            }
+            return null;
+        });
+    }
+
+    @Benchmark
+    public void jpqlProxy(ProxyData data, Blackhole bh) {
+        jpqlInterface(data, bh);
+    }
+
+    @Benchmark
+    public void jpqlGenerated(MemberBenchmarkData data, Blackhole bh) {
+        jpqlInterface(data, bh);
+    }
+
+    @Benchmark
+    public void nativeProxy(ProxyData data, Blackhole bh) {
+        nativeInterface(data, bh);
+    }
+
+    @Benchmark
+    public void nativeGenerated(MemberBenchmarkData data, Blackhole bh) {
+        nativeInterface(data, bh);
+    }
+
+    private static void jpqlInterface(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> {
+            for (UsernameOnly projection : repository.findProjectionsByAgeGreaterThanEqual(0, UsernameOnly.class)) {
+                bh.consume(projection.getUsername());
+            }
+            return null;
+        });
+    }
+
+    private static void nativeInterface(MemberBenchmarkData data, Blackhole bh) {
+        data.read(repository -> {
+            for (MemberProjection projection : repository.findSliceByNativeProjection(PageRequest.of(0, data.members))) {
+                bh.consume(projection.getId());
+                bh.consume(projection.getUsername());
+                bh.consume(projection.getTeamName());
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import study.datajpa.DataJpaApplication;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//배포 때처럼 새 JVM에서 DataJpaApplication을 처음 띄우는 시간, 기본 설정(create, 리포지토리 즉시 생성) vs fast 프로필
+//fork마다 한번만 재므로 -f로 횟수를 정한다, 웹(톰캣)/2차 캐시/p6spy까지 실제 설정 그대로, 단계별 시간은 각 기동의 StartupTimeline 로그
+//./gradlew jmh -PjmhArgs="StartupBenchmark -f 10"
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+public class StartupBenchmark {
+
+    //fork끼리 스키마를 남겨두려고 파일 DB
+    private static final String URL = "jdbc:h2:file:" + new File(System.getProperty("java.io.tmpdir"), "datajpa-startup").getAbsolutePath();
+
+    //fast 프로필은 스키마를 검증만 하므로 없으면 다른 JVM에서 만들어 둔다 (이 JVM을 데우지 않게)
+    @State(Scope.Benchmark)
+    public static class ExistingSchema {
+
+        @Setup(Level.Trial)
+        public void createIfMissing() throws Exception {
+            if (!hasSchema()) {
+                Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                        "-cp", System.getProperty("java.class.path"), StartupBenchmark.class.getName())
+                        .inheritIO()
+                        .start();
+                if (process.waitFor() != 0) {
+                    throw new IllegalStateException("schema creation failed");
+                }
+            }
+        }
+
+        private static boolean hasSchema() throws SQLException {
+            try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+                 ResultSet tables = connection.getMetaData().getTables(null, null, "MEMBER", null)) {
+                return tables.next();
+            }
+        }
+    }
+
+    @Benchmark
+    public void defaultStartup() {
+        start().close();
+    }
+
+    @Benchmark
+    public void fastStartup(ExistingSchema schema) {
+        start("--spring.profiles.active=fast").close();
+    }
+
+    //기본 설정(create)으로 한번 띄워 스키마만 만든다
+    public static void main(String[] args) {
+        start().close();
+    }
+
+    private static ConfigurableApplicationContext start(String... arguments) {
+        String[] defaults = {"--spring.datasource.url=" + URL, "--server.port=0", "--logging.level.org.hibernate.SQL=warn"};
+        return new SpringApplicationBuilder(DataJpaApplication.class)
+                .run(Stream.concat(Arrays.stream(defaults), Arrays.stream(arguments)).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,47 @@
+package study.datajpa.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import study.datajpa.dto.UsernameMatch;
+import study.datajpa.search.UsernameIndex;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//회원 N명의 UsernameIndex에서 자동완성 검색 한번, DB 없이 인덱스만 잰다
+//앞부분 일치는 트리 탐색 + limit개, 중간 포함은 가장 짧은 trigram 목록을 훑는다 (모두 가진 흔한 trigram만 있으면 느려진다)
+//인덱스 크기는 "# Username index" 줄 (UsernameIndex.estimatedBytes)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class UsernameSearchBenchmark {
+
+    private static final String[] WORDS = {"kim", "lee", "park", "choi", "jung", "kang", "cho", "yoon", "jang", "lim"};
+
+    @Param({"1000000"})
+    public int members;
+
+    @Param({"lee", "parkjung", "ungka", "yoon12345"})
+    public String query;
+
+    private UsernameIndex index;
+
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(42);
+        index = new UsernameIndex();
+        for (int id = 1; id <= members; id++) {
+            index.put(id, WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)] + random.nextInt(100_000));
+        }
+        System.out.println("# Username index: " + index.size() + " members, " + index.gramCount() + " trigrams, "
+                + index.estimatedBytes() / 1024 / 1024 + " MB");
+    }
+
+    @Benchmark
+    public List<UsernameMatch> search() {
+        return index.search(query, 10);
+    }
+}
@@ -5,11 +5,11 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.domain.AuditorAware;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import study.datajpa.audit.RequestAuditorAware;
 
-import java.util.Optional;
-import java.util.UUID;
-
-@EnableJpaAuditing
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider") //엔티티는 AuditListener를 사용, AuditingHandler를 직접 쓸 때도 같은 시계와 등록자
+@EnableScheduling //TeamStatisticsService.reconcile
 @SpringBootApplication
 public class DataJpaApplication {
 
@@ -19,7 +19,7 @@ public class DataJpaApplication {
 
 	@Bean
 	public AuditorAware<String> auditorProvider() {
-		return () -> Optional.of(UUID.randomUUID().toString());
+		return new RequestAuditorAware(); //요청마다 한번만 구한다 (이전: 호출마다 UUID.randomUUID())
 	}
 
 }
@@ -0,0 +1,31 @@
+package study.datajpa.audit;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Optional;
+
+@Configuration
+public class AuditConfig {
+
+    @Bean
+    public CoarseClock auditClock(@Value("${datajpa.audit.clock-skew:10ms}") Duration maxSkew) {
+        return new CoarseClock(Clock.systemDefaultZone(), maxSkew);
+    }
+
+    @Bean //@EnableJpaAuditing(AuditingHandler)도 같은 시계를 사용
+    public DateTimeProvider auditingDateTimeProvider(CoarseClock auditClock) {
+        return () -> Optional.of(auditClock.now());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer auditFlushInterceptor(AuditStamps stamps) {
+        return properties -> properties.put(AvailableSettings.INTERCEPTOR, new AuditFlushInterceptor(stamps));
+    }
+}
@@ -0,0 +1,20 @@
+package study.datajpa.audit;
+
+import org.hibernate.EmptyInterceptor;
+
+import java.util.Iterator;
+
+//flush가 끝나면 다음 flush에서 쓸 AuditStamp를 새로 만들도록 비운다
+public class AuditFlushInterceptor extends EmptyInterceptor {
+
+    private final AuditStamps stamps;
+
+    public AuditFlushInterceptor(AuditStamps stamps) {
+        this.stamps = stamps;
+    }
+
+    @Override
+    public void postFlush(Iterator entities) {
+        stamps.flushed();
+    }
+}
@@ -0,0 +1,28 @@
+package study.datajpa.audit;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+//AuditingEntityListener 대신 사용, 하이버네이트가 스프링 빈으로 만들어서 생성자 주입이 된다
+public class AuditListener {
+
+    private final AuditStamps stamps;
+
+    public AuditListener(AuditStamps stamps) {
+        this.stamps = stamps;
+    }
+
+    @PrePersist
+    public void prePersist(Object entity) {
+        if (entity instanceof Audited) {
+            ((Audited) entity).markCreated(stamps.current());
+        }
+    }
+
+    @PreUpdate
+    public void preUpdate(Object entity) {
+        if (entity instanceof Audited) {
+            ((Audited) entity).markModified(stamps.current());
+        }
+    }
+}
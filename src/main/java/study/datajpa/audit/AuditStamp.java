@@ -0,0 +1,19 @@
+package study.datajpa.audit;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+public class AuditStamp {
+
+    private final LocalDateTime time;
+    private final String auditor;
+
+    public AuditStamp(LocalDateTime time, String auditor) {
+        this.time = time;
+        this.auditor = auditor;
+    }
+}
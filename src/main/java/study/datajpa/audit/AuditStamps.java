@@ -0,0 +1,56 @@
+package study.datajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//flush 한번에 쓰이는 엔티티들은 같은 AuditStamp를 공유한다 (시간, 등록자를 flush마다 한번만 구함)
+//트랜잭션마다 Batch를 한번 바인딩하고 AuditFlushInterceptor가 flush가 끝날 때마다 비운다
+@Component
+public class AuditStamps {
+
+    private final CoarseClock clock;
+    private final AuditorAware<String> auditorAware;
+
+    public AuditStamps(CoarseClock clock, AuditorAware<String> auditorAware) {
+        this.clock = clock;
+        this.auditorAware = auditorAware;
+    }
+
+    public AuditStamp current() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return newStamp();
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(AuditStamps.this);
+                }
+            });
+        }
+        if (batch.stamp == null) {
+            batch.stamp = newStamp();
+        }
+        return batch.stamp;
+    }
+
+    void flushed() {
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch != null) {
+            batch.stamp = null;
+        }
+    }
+
+    private AuditStamp newStamp() {
+        return new AuditStamp(clock.now(), auditorAware.getCurrentAuditor().orElse(null));
+    }
+
+    private static class Batch {
+        private AuditStamp stamp;
+    }
+}
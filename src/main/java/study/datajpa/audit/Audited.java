@@ -0,0 +1,9 @@
+package study.datajpa.audit;
+
+//AuditListener가 등록/수정 시점에 호출, 리플렉션 없이 필드를 직접 채운다
+public interface Audited {
+
+    void markCreated(AuditStamp stamp);
+
+    void markModified(AuditStamp stamp);
+}
@@ -0,0 +1,40 @@
+package study.datajpa.audit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+//LocalDateTime.now()를 엔티티마다 부르지 않고 maxSkew 동안 같은 값을 돌려준다
+//돌려주는 시간은 실제 시간보다 최대 maxSkew만큼 늦을 수 있다, 별도 스레드 없이 호출 시점에 갱신
+public class CoarseClock {
+
+    private final Clock source;
+    private final long maxSkewNanos;
+    private volatile Tick tick;
+
+    public CoarseClock(Clock source, Duration maxSkew) {
+        this.source = source;
+        this.maxSkewNanos = maxSkew.toNanos();
+        this.tick = new Tick(System.nanoTime(), LocalDateTime.now(source));
+    }
+
+    public LocalDateTime now() {
+        long nanos = System.nanoTime();
+        Tick current = tick;
+        if (nanos - current.nanos >= maxSkewNanos) {
+            current = new Tick(nanos, LocalDateTime.now(source)); //여러 스레드가 동시에 갱신해도 결과는 같다
+            tick = current;
+        }
+        return current.time;
+    }
+
+    private static class Tick {
+        private final long nanos;
+        private final LocalDateTime time;
+
+        private Tick(long nanos, LocalDateTime time) {
+            this.nanos = nanos;
+            this.time = time;
+        }
+    }
+}
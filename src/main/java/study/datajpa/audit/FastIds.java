@@ -0,0 +1,19 @@
+package study.datajpa.audit;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+//UUID.randomUUID()는 SecureRandom을 공유해서 동시에 많이 부르면 경합한다
+//보안이 필요 없는 식별자는 ThreadLocalRandom으로 만든 version 4 UUID를 사용한다
+public final class FastIds {
+
+    private FastIds() {
+    }
+
+    public static UUID uuid() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long most = (random.nextLong() & ~0xF000L) | 0x4000L; //version 4
+        long least = (random.nextLong() & ~(0xC000L << 48)) | (0x8000L << 48); //IETF variant
+        return new UUID(most, least);
+    }
+}
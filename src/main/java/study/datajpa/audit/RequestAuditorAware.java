@@ -0,0 +1,37 @@
+package study.datajpa.audit;
+
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.security.Principal;
+import java.util.Optional;
+
+//등록자, 수정자, HTTP 요청마다 한번만 구해서 요청 속성에 캐시한다
+//인증된 사용자(HttpServletRequest.getUserPrincipal)가 있으면 그 이름, 없으면 요청마다 만든 id, 요청 밖(배치, 테스트)에서는 system
+//클라이언트가 보낸 헤더는 누구나 바꿔 보낼 수 있으므로 감사 컬럼에 쓰지 않는다
+public class RequestAuditorAware implements AuditorAware<String> {
+
+    public static final String SYSTEM = "system";
+
+    private static final String ATTRIBUTE = RequestAuditorAware.class.getName();
+
+    @Override
+    public Optional<String> getCurrentAuditor() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return Optional.of(SYSTEM);
+        }
+
+        String auditor = (String) attributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (auditor == null) {
+            Principal principal = attributes instanceof ServletRequestAttributes
+                    ? ((ServletRequestAttributes) attributes).getRequest().getUserPrincipal()
+                    : null;
+            auditor = principal != null ? principal.getName() : FastIds.uuid().toString();
+            attributes.setAttribute(ATTRIBUTE, auditor, RequestAttributes.SCOPE_REQUEST);
+        }
+        return Optional.of(auditor);
+    }
+}
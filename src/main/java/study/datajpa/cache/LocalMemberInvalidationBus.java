@@ -0,0 +1,23 @@
+package study.datajpa.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+//같은 JVM의 구독자에게 바로(호출한 스레드에서) 전달한다, 단일 노드와 테스트용
+public class LocalMemberInvalidationBus implements MemberInvalidationBus {
+
+    private final List<Consumer<MemberInvalidation>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(MemberInvalidation invalidation) {
+        for (Consumer<MemberInvalidation> subscriber : subscribers) {
+            subscriber.accept(invalidation);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<MemberInvalidation> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
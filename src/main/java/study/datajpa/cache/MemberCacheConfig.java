@@ -0,0 +1,15 @@
+package study.datajpa.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MemberCacheConfig {
+
+    @Bean //여러 노드를 쓰면 datajpa.member-cache.bus를 바꾸고 그 값일 때 등록되는 MemberInvalidationBus 빈을 따로 만든다
+    @ConditionalOnProperty(name = "datajpa.member-cache.bus", havingValue = "local", matchIfMissing = true)
+    public MemberInvalidationBus memberInvalidationBus() {
+        return new LocalMemberInvalidationBus();
+    }
+}
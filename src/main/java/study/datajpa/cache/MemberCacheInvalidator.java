@@ -0,0 +1,61 @@
+package study.datajpa.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.MemberChangedEvent;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+//MemberChangedEvent(@PostUpdate/@PostRemove, 벌크 연산)를 받아 회원 캐시를 무효화한다
+//이 노드는 바로 지우고, 커밋 전에 다른 트랜잭션이 이전 값을 다시 캐시했을 수 있으므로 트랜잭션이 끝나면 버스로 한번 더 (모든 노드)
+@Component
+@RequiredArgsConstructor
+public class MemberCacheInvalidator {
+
+    private final MemberSnapshotCache cache;
+    private final MemberInvalidationBus bus;
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (event.getType() == MemberChangedEvent.Type.PERSISTED) {
+            return; //없는 id는 캐시하지 않는다
+        }
+        MemberInvalidation invalidation = event.getMemberId() == null
+                ? MemberInvalidation.all()
+                : MemberInvalidation.of(event.getMemberId());
+        cache.invalidate(invalidation);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bus.publish(invalidation);
+            return;
+        }
+        pending().add(invalidation);
+    }
+
+    //트랜잭션당 synchronization 하나에 모아서 보낸다, 전체 무효화가 있으면 그것 하나만
+    @SuppressWarnings("unchecked")
+    private Set<MemberInvalidation> pending() {
+        Set<MemberInvalidation> pending = (Set<MemberInvalidation>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Set<MemberInvalidation> created = new LinkedHashSet<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberCacheInvalidator.this);
+                if (created.contains(MemberInvalidation.all())) {
+                    bus.publish(MemberInvalidation.all());
+                } else {
+                    created.forEach(bus::publish);
+                }
+            }
+        });
+        return created;
+    }
+}
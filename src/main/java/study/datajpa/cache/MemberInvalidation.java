@@ -0,0 +1,32 @@
+package study.datajpa.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+//MemberInvalidationBus로 다른 노드에 보내는 메시지, 직렬화해서 보낼 수 있도록 값만 가진다
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class MemberInvalidation implements Serializable {
+
+    private final Long memberId; //null이면 전체 (벌크 연산)
+
+    private MemberInvalidation(Long memberId) {
+        this.memberId = memberId;
+    }
+
+    public static MemberInvalidation of(Long memberId) {
+        return new MemberInvalidation(memberId);
+    }
+
+    public static MemberInvalidation all() {
+        return new MemberInvalidation(null);
+    }
+
+    public boolean isAll() {
+        return memberId == null;
+    }
+}
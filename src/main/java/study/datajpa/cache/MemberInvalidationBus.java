@@ -0,0 +1,12 @@
+package study.datajpa.cache;
+
+import java.util.function.Consumer;
+
+//회원 캐시 무효화를 모든 애플리케이션 노드에 전달한다, 보낸 노드 자신도 받는다
+//기본은 같은 JVM 안에서만 전달하는 LocalMemberInvalidationBus, 여러 노드면 Redis pub/sub, JMS 등으로 구현해서 대체한다 (MemberCacheConfig)
+public interface MemberInvalidationBus {
+
+    void publish(MemberInvalidation invalidation);
+
+    void subscribe(Consumer<MemberInvalidation> subscriber);
+}
@@ -0,0 +1,87 @@
+package study.datajpa.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.MemberChangedEvent;
+import study.datajpa.entity.MemberListVersion;
+import study.datajpa.entity.TeamChangedEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+//MemberChangedEvent(엔티티 리스너, 벌크 연산, claimNext), TeamChangedEvent를 받아 member_list_version을 올린다 (MemberListVersion)
+//커밋 직전(flush 이후)에 같은 트랜잭션에서 한번만 올리므로 변경과 version이 같이 커밋되거나 같이 롤백된다
+//이벤트 없이 member 테이블을 직접 바꾸는 코드(JDBC, 다른 애플리케이션)는 이 row도 같이 올려야 한다
+//모든 회원 변경이 같은 row를 고치므로 커밋 직전부터 커밋까지는 회원을 바꾸는 트랜잭션끼리 차례로 커밋한다
+@Component
+@RequiredArgsConstructor
+public class MemberListVersionUpdater {
+
+    private static final String UPDATE = "update member_list_version set version = version + 1, last_modified_date = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    //ddl-auto: create면 기동할 때마다 테이블이 비어 있다, 여러 노드가 동시에 만들면 하나만 들어간다
+    @EventListener(ContextRefreshedEvent.class)
+    public void createRow() {
+        Integer rows = jdbcTemplate.queryForObject("select count(*) from member_list_version where id = ?", Integer.class, MemberListVersion.ID);
+        if (rows != null && rows == 0) {
+            try {
+                jdbcTemplate.update("insert into member_list_version (id, version, last_modified_date) values (?, 0, ?)",
+                        MemberListVersion.ID, Timestamp.valueOf(LocalDateTime.now()));
+            } catch (DuplicateKeyException e) {
+                //다른 노드가 먼저 만들었다
+            }
+        }
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        changed();
+    }
+
+    @EventListener
+    public void onTeamChanged(TeamChangedEvent event) {
+        changed();
+    }
+
+    //엔티티 이벤트는 커밋할 때의 flush에서도 오므로 스프링 beforeCommit(flush 전)이 아니라 하이버네이트 세션의 커밋 직전 처리로 올린다
+    private void changed() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            jdbcTemplate.update(UPDATE, Timestamp.valueOf(LocalDateTime.now()), MemberListVersion.ID);
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return; //이 트랜잭션에서 이미 등록했다
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberListVersionUpdater.this);
+            }
+        });
+        em.unwrap(SessionImplementor.class).getActionQueue()
+                .registerProcess((BeforeTransactionCompletionProcess) session -> session.doWork(connection -> {
+                    try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                        update.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now()));
+                        update.setLong(2, MemberListVersion.ID);
+                        update.executeUpdate();
+                    }
+                }));
+    }
+}
@@ -0,0 +1,47 @@
+package study.datajpa.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.datajpa.entity.Member;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+//캐시에 넣는 회원의 불변 복사본, 영속성 컨텍스트/세션과 무관하게 여러 스레드가 같이 읽는다
+@Getter
+@ToString
+public final class MemberSnapshot {
+
+    private final Long id;
+    private final String username;
+    private final int age;
+    private final Long teamId;
+    private final Long version;
+    private final LocalDateTime lastModifiedDate; //ETag, Last-Modified (MemberController)
+
+    private MemberSnapshot(Long id, String username, int age, Long teamId, Long version, LocalDateTime lastModifiedDate) {
+        this.id = id;
+        this.username = username;
+        this.age = age;
+        this.teamId = teamId;
+        this.version = version;
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    //팀 프록시에서 id만 꺼내므로 팀을 조회하지 않는다
+    public static MemberSnapshot of(Member member) {
+        Long teamId = member.getTeam() == null ? null : member.getTeam().getId();
+        return new MemberSnapshot(member.getId(), member.getUsername(), member.getAge(), teamId,
+                member.getVersion(), member.getLastModifiedDate());
+    }
+
+    //id와 version, 감사 시계(CoarseClock)의 같은 tick 안에서 두번 바뀌어도 다르다
+    public String getETag() {
+        return "\"member-" + id + "-" + version + "\"";
+    }
+
+    //lastModifiedDate가 없으면 -1 (Last-Modified를 보내지 않는다)
+    public long getLastModified() {
+        return lastModifiedDate == null ? -1 : lastModifiedDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
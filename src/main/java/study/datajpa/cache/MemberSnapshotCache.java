@@ -0,0 +1,61 @@
+package study.datajpa.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import study.datajpa.repository.MemberRepository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+//id -> MemberSnapshot, 일부 회원에 조회가 몰리므로 /members/{id}는 findById 대신 여기서 읽는다
+//Caffeine(W-TinyLFU)으로 최대 maximumSize개, 자주 쓰이는 id가 한번 스캔된 id에 밀려나지 않는다
+//변경은 MemberCacheInvalidator -> MemberInvalidationBus로 모든 노드에서 지운다, ttl은 메시지를 놓쳤을 때의 상한
+//ex) /actuator/metrics/cache.gets?tag=cache:member-snapshots
+@Slf4j
+@Component
+public class MemberSnapshotCache {
+
+    static final String NAME = "member-snapshots";
+
+    private final MemberRepository memberRepository;
+    private final Cache<Long, MemberSnapshot> cache;
+
+    public MemberSnapshotCache(MemberRepository memberRepository, MemberInvalidationBus bus, MeterRegistry registry,
+                               @Value("${datajpa.member-cache.maximum-size:10000}") long maximumSize,
+                               @Value("${datajpa.member-cache.ttl:10m}") Duration ttl) {
+        this.memberRepository = memberRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+        bus.subscribe(this::invalidate);
+    }
+
+    //없는 id는 캐시하지 않는다, 같은 id를 동시에 읽으면 한 스레드만 조회한다
+    public Optional<MemberSnapshot> get(Long id) {
+        return Optional.ofNullable(cache.get(id, key -> memberRepository.findById(key)
+                .map(MemberSnapshot::of)
+                .orElse(null)));
+    }
+
+    void invalidate(MemberInvalidation invalidation) {
+        log.debug("member cache invalidation: {}", invalidation);
+        if (invalidation.isAll()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidate(invalidation.getMemberId());
+        }
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+}
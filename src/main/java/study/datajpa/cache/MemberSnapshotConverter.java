@@ -0,0 +1,19 @@
+package study.datajpa.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+//도메인 클래스 컨버터처럼 @PathVariable("id") MemberSnapshot으로 받는다, findById 대신 MemberSnapshotCache를 거친다
+//스프링 부트가 Converter 빈을 MVC에 등록해준다
+@Component
+@RequiredArgsConstructor
+public class MemberSnapshotConverter implements Converter<String, MemberSnapshot> {
+
+    private final MemberSnapshotCache cache;
+
+    @Override
+    public MemberSnapshot convert(String id) {
+        return cache.get(Long.valueOf(id)).orElse(null);
+    }
+}
@@ -0,0 +1,60 @@
+package study.datajpa.config;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//p6spy 리스너, 실행된 SQL을 커넥션 URL로 primary/replica-n을 구분해서 센다 (datajpa.datasource.statements{target})
+//스키마 생성 SQL은 MeterRegistry가 만들어지기 전에 실행되므로 직접 세고 메트릭은 값을 읽어가게만 한다
+public class DataSourceTargetCounter extends SimpleJdbcEventListener implements MeterBinder {
+
+    private final Map<String, LongAdder> counts = new LinkedHashMap<>();
+    private final Map<String, LongAdder> countsByUrl = new HashMap<>();
+
+    //target 이름 -> JDBC URL
+    public DataSourceTargetCounter(Map<String, String> targetUrls) {
+        targetUrls.forEach((target, url) -> {
+            LongAdder count = new LongAdder();
+            counts.put(target, count);
+            countsByUrl.put(normalize(url), count);
+        });
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        LongAdder count = countsByUrl.get(normalize(statementInformation.getConnectionInformation().getUrl()));
+        if (count != null) {
+            count.increment();
+        }
+    }
+
+    public long count(String target) {
+        LongAdder count = counts.get(target);
+        return count == null ? 0 : count.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counts.forEach((target, count) -> FunctionCounter.builder("datajpa.datasource.statements", count, LongAdder::sum)
+                .description("SQL statements executed per routing target")
+                .tag("target", target)
+                .register(registry));
+    }
+
+    //드라이버가 돌려주는 URL에는 ;DB_CLOSE_DELAY 같은 옵션이 빠져 있을 수 있다
+    private static String normalize(String url) {
+        if (url == null) {
+            return "";
+        }
+        int options = url.indexOf(';');
+        return options < 0 ? url : url.substring(0, options);
+    }
+}
@@ -0,0 +1,57 @@
+package study.datajpa.config;
+
+import org.hibernate.resource.beans.container.spi.BeanContainer;
+import org.hibernate.resource.beans.container.spi.ContainedBean;
+import org.hibernate.resource.beans.spi.BeanInstanceProducer;
+
+import java.util.function.Supplier;
+
+//SpringBeanContainer는 하이버네이트가 빈을 요청하는 즉시 스프링 빈을 만든다
+//엔티티 리스너는 콜백을 부를 때 처음 꺼내므로, 그때까지 스프링 빈 생성을 미룬다 (CDI의 hibernate.delay_cdi_access와 같은 역할)
+class DelayedBeanContainer implements BeanContainer {
+
+    private final BeanContainer delegate;
+
+    DelayedBeanContainer(BeanContainer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public <B> ContainedBean<B> getBean(Class<B> beanType, LifecycleOptions lifecycleOptions, BeanInstanceProducer fallbackProducer) {
+        return new DelayedBean<>(() -> delegate.getBean(beanType, lifecycleOptions, fallbackProducer));
+    }
+
+    @Override
+    public <B> ContainedBean<B> getBean(String name, Class<B> beanType, LifecycleOptions lifecycleOptions, BeanInstanceProducer fallbackProducer) {
+        return new DelayedBean<>(() -> delegate.getBean(name, beanType, lifecycleOptions, fallbackProducer));
+    }
+
+    @Override
+    public void stop() {
+        delegate.stop();
+    }
+
+    private static class DelayedBean<B> implements ContainedBean<B> {
+
+        private final Supplier<ContainedBean<B>> supplier;
+        private volatile ContainedBean<B> bean;
+
+        DelayedBean(Supplier<ContainedBean<B>> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public B getBeanInstance() {
+            ContainedBean<B> bean = this.bean;
+            if (bean == null) {
+                synchronized (this) {
+                    bean = this.bean;
+                    if (bean == null) {
+                        this.bean = bean = supplier.get();
+                    }
+                }
+            }
+            return bean.getBeanInstance();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package study.datajpa.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.beans.container.spi.BeanContainer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.repository.config.BootstrapMode;
+import study.datajpa.projection.ProjectionRepositoryFactoryBean;
+
+//리포지토리 자동 설정 대신, 팩토리 빈만 바꾸고 나머지는 기본값
+//@EnableJpaRepositories를 직접 쓰면 spring.data.jpa.repositories.bootstrap-mode가 무시되므로 값마다 설정을 나눈다
+@Configuration
+public class JpaRepositoryConfig {
+
+    static final String BOOTSTRAP_MODE = "spring.data.jpa.repositories.bootstrap-mode";
+    static final String BACKGROUND_BOOTSTRAP = "'${" + BOOTSTRAP_MODE + ":default}' != 'default'";
+
+    @Configuration
+    @ConditionalOnProperty(name = BOOTSTRAP_MODE, havingValue = "default", matchIfMissing = true)
+    @EnableJpaRepositories(basePackages = "study.datajpa.repository", repositoryFactoryBeanClass = ProjectionRepositoryFactoryBean.class)
+    static class DefaultBootstrap {
+    }
+
+    //리포지토리를 ContextRefreshedEvent에서 만든다, 그 전까지 EntityManagerFactory는 백그라운드에서 뜬다
+    @Configuration
+    @ConditionalOnProperty(name = BOOTSTRAP_MODE, havingValue = "deferred")
+    @EnableJpaRepositories(basePackages = "study.datajpa.repository", repositoryFactoryBeanClass = ProjectionRepositoryFactoryBean.class,
+            bootstrapMode = BootstrapMode.DEFERRED)
+    static class DeferredBootstrap {
+    }
+
+    //리포지토리를 처음 쓸 때 만든다 (테스트처럼 일부 리포지토리만 쓰는 경우)
+    @Configuration
+    @ConditionalOnProperty(name = BOOTSTRAP_MODE, havingValue = "lazy")
+    @EnableJpaRepositories(basePackages = "study.datajpa.repository", repositoryFactoryBeanClass = ProjectionRepositoryFactoryBean.class,
+            bootstrapMode = BootstrapMode.LAZY)
+    static class LazyBootstrap {
+    }
+
+    @Bean //JpaRepositoriesAutoConfiguration이 deferred/lazy일 때 하던 것, 하이버네이트 부트스트랩을 다른 빈 생성과 겹친다
+    @ConditionalOnExpression(BACKGROUND_BOOTSTRAP)
+    public EntityManagerFactoryBuilderCustomizer backgroundEntityManagerFactory(
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor applicationTaskExecutor) {
+        return builder -> builder.setBootstrapExecutor(applicationTaskExecutor);
+    }
+
+    //백그라운드 부트스트랩은 엔티티 리스너(AuditListener 등)를 스프링 빈으로 만들면서 싱글톤 락이 필요하다
+    //그동안 main 스레드가 락을 잡은 채 EntityManagerFactory를 기다리면(DomainClassConverter -> 리포지토리 팩토리 등) 교착 상태가 되므로 리스너 빈은 처음 부를 때 만든다
+    @Bean
+    @ConditionalOnExpression(BACKGROUND_BOOTSTRAP)
+    public HibernatePropertiesCustomizer delayedBeanContainer() {
+        return properties -> properties.computeIfPresent(AvailableSettings.BEAN_CONTAINER,
+                (key, container) -> new DelayedBeanContainer((BeanContainer) container));
+    }
+}
@@ -0,0 +1,58 @@
+package study.datajpa.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//datajpa.datasource.replicas가 설정된 경우에만 스프링 부트 기본 DataSource, 트랜잭션 매니저 대신 사용한다
+@Configuration
+@ConditionalOnProperty("datajpa.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, ReplicaProperties replicaProperties) {
+        DataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReplicaProperties.Replica replica : replicaProperties.getReplicas()) {
+            replicas.add(DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build());
+        }
+        return new ReplicaRoutingDataSource(primary, replicas);
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        ReplicaRoutingTransactionManager transactionManager = new ReplicaRoutingTransactionManager();
+        customizers.ifAvailable(customizer -> customizer.customize(transactionManager));
+        return transactionManager;
+    }
+
+    @Bean
+    public DataSourceTargetCounter dataSourceTargetCounter(DataSourceProperties properties, ReplicaProperties replicaProperties) {
+        Map<String, String> targetUrls = new LinkedHashMap<>();
+        targetUrls.put(ReplicaRoutingDataSource.PRIMARY, properties.determineUrl());
+        List<ReplicaProperties.Replica> replicas = replicaProperties.getReplicas();
+        for (int i = 0; i < replicas.size(); i++) {
+            targetUrls.put(ReplicaRoutingDataSource.replicaKey(i), replicas.get(i).getUrl());
+        }
+        return new DataSourceTargetCounter(targetUrls);
+    }
+}
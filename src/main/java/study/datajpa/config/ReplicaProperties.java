@@ -0,0 +1,25 @@
+package study.datajpa.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//datajpa.datasource.replicas[n].url/username/password, 읽기 전용 트랜잭션을 보낼 DB 목록
+@Getter
+@Setter
+@ConfigurationProperties("datajpa.datasource")
+public class ReplicaProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
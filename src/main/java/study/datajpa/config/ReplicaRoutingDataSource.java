@@ -0,0 +1,72 @@
+package study.datajpa.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica로, 나머지는 primary로 보낸다
+//JpaTransactionManager는 트랜잭션을 시작하면서 커넥션을 얻는데 그 시점에는 아직 readOnly 여부가 등록되지 않으므로
+//ReplicaRoutingTransactionManager가 커넥션을 얻는 동안 readOnly 여부를 알려준다
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private static final ThreadLocal<Boolean> beginningReadOnly = new ThreadLocal<>();
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final List<DataSource> targets = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+        Map<Object, Object> targetDataSources = new HashMap<>();
+        targetDataSources.put(PRIMARY, primary);
+        targets.add(primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = replicaKey(i);
+            targetDataSources.put(key, replicas.get(i));
+            replicaKeys.add(key);
+            targets.add(replicas.get(i));
+        }
+        setTargetDataSources(targetDataSources);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+
+    static void beginTransaction(boolean readOnly) {
+        beginningReadOnly.set(readOnly);
+    }
+
+    static void transactionBegun() {
+        beginningReadOnly.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnly = Boolean.TRUE.equals(beginningReadOnly.get())
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!readOnly || replicaKeys.isEmpty()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size())); //라운드로빈
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource target : targets) {
+            if (target instanceof Closeable) {
+                ((Closeable) target).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package study.datajpa.config;
+
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+//트랜잭션 시작 시 커넥션을 얻는 동안 ReplicaRoutingDataSource에 readOnly 여부를 알려준다
+public class ReplicaRoutingTransactionManager extends JpaTransactionManager {
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+        ReplicaRoutingDataSource.beginTransaction(definition.isReadOnly());
+        try {
+            super.doBegin(transaction, definition);
+        } finally {
+            ReplicaRoutingDataSource.transactionBegun();
+        }
+    }
+}
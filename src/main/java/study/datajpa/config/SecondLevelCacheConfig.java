@@ -0,0 +1,29 @@
+package study.datajpa.config;
+
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.cache.CacheManager;
+import java.io.IOException;
+
+//하이버네이트 2차 캐시가 쓰는 JCache CacheManager를 EntityManagerFactory(스프링 컨텍스트)마다 따로 만든다
+//hibernate.javax.cache.uri만 주면 Caching.getCachingProvider()가 JVM에 하나라서 uri가 같은 모든 컨텍스트가 CacheManager를 공유한다
+//DB가 다른 컨텍스트끼리 같은 id의 엔티티를 서로 읽게 되므로, 프로바이더를 새로 만들어서 CacheManager도 새로 받는다
+@Configuration
+public class SecondLevelCacheConfig {
+
+    @Bean //EntityManagerFactory가 닫힐 때 하이버네이트가 먼저 닫는다, close는 두번 불러도 된다
+    public CacheManager secondLevelCacheManager() throws IOException {
+        EhcacheCachingProvider provider = new EhcacheCachingProvider();
+        return provider.getCacheManager(new ClassPathResource("ehcache.xml").getURI(), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheManagerProperty(CacheManager secondLevelCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+    }
+}
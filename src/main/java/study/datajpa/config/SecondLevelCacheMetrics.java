@@ -0,0 +1,37 @@
+package study.datajpa.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+
+//2차 캐시 region별 hit/miss/put/eviction을 cache.gets, cache.puts, cache.evictions 메트릭으로 내보낸다 (tag cache = region 이름)
+//EntityManagerFactory를 기다려야 하므로 IdGeneratorMetrics처럼 모든 빈을 만든 뒤에 묶는다
+@Component
+@RequiredArgsConstructor
+public class SecondLevelCacheMetrics implements SmartInitializingSingleton {
+
+    private final EntityManagerFactory emf;
+    private final MeterRegistry registry;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        RegionFactory regionFactory = emf.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        if (!(regionFactory instanceof JCacheRegionFactory)) {
+            return; //2차 캐시를 끈 경우
+        }
+
+        CacheManager cacheManager = ((JCacheRegionFactory) regionFactory).getCacheManager();
+        for (String name : cacheManager.getCacheNames()) {
+            JCacheMetrics.monitor(registry, cacheManager.getCache(name), Tags.of("layer", "hibernate-l2"));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package study.datajpa.config;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+//기동 시간이 어디에 쓰이는지, 단계별 시간과 오래 걸린 빈을 ApplicationReadyEvent에 로그로 남긴다
+//컨텍스트가 뜨기 전 이벤트부터 받아야 해서 빈이 아니라 META-INF/spring.factories로 등록, 컨텍스트에는 "startupTimeline" 싱글톤으로 넣어준다
+//datajpa.startup.timeline=false면 끈다
+@Slf4j
+public class StartupTimeline implements ApplicationListener<ApplicationEvent>, Ordered {
+
+    static final String ENABLED = "datajpa.startup.timeline";
+
+    private static final AtomicBoolean FIRST = new AtomicBoolean();
+
+    private final Map<String, Long> phases = new LinkedHashMap<>(); //단계 -> ms
+    private final Map<String, Long> beans = new LinkedHashMap<>(); //빈 -> 의존 빈을 뺀 생성 시간 ns
+    private final Deque<BeanFrame> creating = new ArrayDeque<>();
+
+    private boolean enabled = true;
+    private ConfigurableApplicationContext context;
+    private long last;
+    private volatile boolean refreshed;
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE; //같은 이벤트의 다른 리스너(deferred 모드의 리포지토리 생성, QueryWarmup)까지 끝난 시점
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            last = System.nanoTime();
+            if (FIRST.compareAndSet(false, true)) {
+                phases.put("jvm", ManagementFactory.getRuntimeMXBean().getUptime()); //main 전까지, JVM에서 처음 뜨는 애플리케이션만
+            }
+        } else if (!enabled) {
+            return;
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            enabled = ((ApplicationEnvironmentPreparedEvent) event).getEnvironment().getProperty(ENABLED, Boolean.class, true);
+            mark("environment");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            context = ((ApplicationPreparedEvent) event).getApplicationContext();
+            context.getBeanFactory().registerSingleton("startupTimeline", this);
+            context.getBeanFactory().addBeanPostProcessor(new BeanTimer());
+            context.addBeanFactoryPostProcessor(new BeanDefinitionTimer());
+            mark("prepare");
+        } else if (event instanceof ContextRefreshedEvent && ((ContextRefreshedEvent) event).getApplicationContext() == context) {
+            refreshed = true;
+            mark("beans"); //빈 생성 + ContextRefreshedEvent 리스너 (deferred 모드의 리포지토리 생성, QueryWarmup)
+        } else if (event instanceof ApplicationStartedEvent && ((ApplicationStartedEvent) event).getApplicationContext() == context) {
+            mark("web-server"); //내장 톰캣 시작
+        } else if (event instanceof ApplicationReadyEvent && ((ApplicationReadyEvent) event).getApplicationContext() == context) {
+            mark("runners");
+            log.info("startup timeline: {} (total {}ms), slowest beans: {}",
+                    phases.entrySet().stream().map(phase -> phase.getKey() + " " + phase.getValue() + "ms").collect(Collectors.joining(", ")),
+                    getTotalMillis(),
+                    slowestBeans(10).entrySet().stream().map(bean -> bean.getKey() + " " + bean.getValue() + "ms").collect(Collectors.joining(", ")));
+        }
+    }
+
+    private void mark(String phase) {
+        long now = System.nanoTime();
+        phases.put(phase, TimeUnit.NANOSECONDS.toMillis(now - last));
+        last = now;
+    }
+
+    public Map<String, Long> getPhases() {
+        return Collections.unmodifiableMap(phases);
+    }
+
+    public long getTotalMillis() {
+        return phases.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    //빈 이름 -> ms, 다른 빈을 만드는 데 쓴 시간은 그 빈 몫
+    public Map<String, Long> slowestBeans(int n) {
+        List<Map.Entry<String, Long>> sorted;
+        synchronized (beans) {
+            sorted = new ArrayList<>(beans.entrySet());
+        }
+        sorted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<String, Long> slowest = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> bean : sorted.subList(0, Math.min(n, sorted.size()))) {
+            slowest.put(bean.getKey(), TimeUnit.NANOSECONDS.toMillis(bean.getValue()));
+        }
+        return slowest;
+    }
+
+    //직접 추가한 BeanDefinitionRegistryPostProcessor의 postProcessBeanFactory는 설정 클래스 파싱(컴포넌트 스캔, 자동 설정 조건) 다음에 불린다
+    private class BeanDefinitionTimer implements BeanDefinitionRegistryPostProcessor {
+
+        @Override
+        public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) {
+        }
+
+        @Override
+        public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+            mark("bean-definitions");
+        }
+    }
+
+    @Getter
+    private static class BeanFrame {
+        private final String name;
+        private final long start = System.nanoTime();
+        private long children;
+
+        BeanFrame(String name) {
+            this.name = name;
+        }
+    }
+
+    //인스턴스 생성 전 ~ 초기화 후, refresh 중 main 스레드에서 만든 빈만 센다 (lazy 빈, 다른 스레드에서 만든 빈은 제외)
+    private class BeanTimer implements InstantiationAwareBeanPostProcessor {
+
+        private final Thread owner = Thread.currentThread();
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+            if (Thread.currentThread() == owner && !refreshed) {
+                creating.push(new BeanFrame(beanName));
+            }
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            BeanFrame frame = creating.peek();
+            if (Thread.currentThread() != owner || frame == null || !frame.getName().equals(beanName)) {
+                return bean; //FactoryBean이 만든 객체 등
+            }
+            creating.pop();
+            long elapsed = System.nanoTime() - frame.getStart();
+            if (!creating.isEmpty()) {
+                creating.peek().children += elapsed;
+            }
+            synchronized (beans) {
+                beans.merge(beanName, elapsed - frame.getChildren(), Long::sum);
+            }
+            return bean;
+        }
+    }
+}
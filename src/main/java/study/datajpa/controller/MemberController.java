@@ -1,49 +1,186 @@
 package study.datajpa.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.datajpa.cache.MemberSnapshot;
+import study.datajpa.cache.MemberSnapshotCache;
+import study.datajpa.dto.CursorSlice;
+import study.datajpa.dto.MemberCursor;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberListFingerprint;
+import study.datajpa.dto.MemberScreen;
+import study.datajpa.dto.UsernameMatch;
 import study.datajpa.entity.Member;
+import study.datajpa.repository.CountQuery;
+import study.datajpa.repository.CountStrategy;
+import study.datajpa.repository.MemberQueryRepository;
 import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.PageCounter;
+import study.datajpa.search.UsernameSearch;
+import study.datajpa.service.MemberImportService;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_PAGE_SIZE = 2000; //spring.data.web.pageable.max-page-size와 맞춤
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final MemberRepository memberRepository;
+    private final PageCounter pageCounter;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MemberImportService memberImportService;
+    private final MemberSnapshotCache memberSnapshotCache;
+    private final MemberQueryRepository memberQueryRepository;
+    private final UsernameSearch usernameSearch;
+
+    @Value("${datajpa.export.fetch-size:1000}")
+    private int exportFetchSize;
 
     private static MemberDto apply(Member member) {
         return new MemberDto(member.getId(), member.getUsername(), null);
     }
 
     @GetMapping("/members/{id}")
-    public String findMember(@PathVariable("id") Long id) {
-        Member member = memberRepository.findById(id).get();
+    public String findMember(@PathVariable("id") Long id, WebRequest request) {
+        //조회가 몰리는 회원이 많아서 findById 대신 캐시된 스냅샷을 읽는다 (변경되면 MemberCacheInvalidator가 지운다)
+        MemberSnapshot member = memberSnapshotCache.get(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "member " + id));
+        if (notModified(member, request)) {
+            return null; //304, 본문 없음
+        }
         return member.getUsername();
     }
 
     @GetMapping("/members2/{id}")
-    public String findMember2(@PathVariable("id") Member member) { //도메인 클래스 컨버터, 이 Member 엔티티는 조회용으로만 사용해야 한다!
+    public String findMember2(@PathVariable("id") MemberSnapshot member, WebRequest request) { //도메인 클래스 컨버터 대신 MemberSnapshotConverter, 엔티티가 아니므로 조회용으로만 쓸 수 있다
+        if (member == null) { //없는 id면 컨버터가 null을 넘긴다, 컨버터에서 던지면 400(타입 변환 실패)이 되므로 여기서 404
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "member not found");
+        }
+        if (notModified(member, request)) {
+            return null;
+        }
         return member.getUsername();
     }
 
+    //If-None-Match가 있으면 ETag로만 비교한다 (WebRequest.checkNotModified)
+    private static boolean notModified(MemberSnapshot member, WebRequest request) {
+        return request.checkNotModified(member.getETag(), member.getLastModified());
+    }
+
     @GetMapping("/members") //http://localhost:8080/members?page=0&size=5&sort=id,desc&sort=username,desc 파라미터
-    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username") Pageable pageable) { //@PageableDefault로 default 개별 설정
-        return memberRepository.findAll(pageable)
-                .map(MemberDto::new);
+    public Page<MemberDto> list(@PageableDefault(size = 5, sort = "username") Pageable pageable, WebRequest request) { //@PageableDefault로 default 개별 설정
+        //회원, 팀이 그대로면 버전 row 하나만 읽고 304를 돌려준다, 페이지는 조회하지 않는다 (MemberListVersion)
+        //버전을 페이지보다 먼저 읽는다, 그 사이에 바뀌면 새 목록이 이전 ETag로 나가고 다음 요청에서 다시 조회한다
+        MemberListFingerprint fingerprint = memberRepository.findListFingerprint();
+        if (fingerprint != null && request.checkNotModified(fingerprint.getETag(), fingerprint.getLastModified())) {
+            return null;
+        }
+
+        //엔티티를 만들지 않고 id, username, teamName만 조인 한번으로 조회한다
+        //전체 count는 테이블이 크면 추정치, 작으면 짧게 캐시한 값을 사용한다
+        Slice<MemberDto> slice;
+        try {
+            slice = memberRepository.findMemberDtoSlice(pageable);
+        } catch (InvalidDataAccessApiUsageException e) { //허용하지 않는 sort 속성
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return pageCounter.toPage(slice, CountStrategy.ESTIMATED,
+                CountQuery.ofTable("member", memberRepository::count));
+    }
+
+    @GetMapping("/members/screen") //회원 페이지, 팀 요약, 개수를 동시에 조회, 응답은 가장 느린 쿼리가 끝나면 (MemberQueryRepository)
+    public CompletableFuture<MemberScreen> screen(@PageableDefault(size = 5, sort = "username") Pageable pageable) {
+        return memberQueryRepository.memberScreen(pageable);
+    }
+
+    @GetMapping("/members/search") //http://localhost:8080/members/search?q=mem&size=10 자동완성, 앞부분 일치 다음에 중간 포함 (3글자 이상)
+    public List<UsernameMatch> search(@RequestParam("q") String query,
+                                      @RequestParam(value = "size", defaultValue = "10") int size) {
+        return usernameSearch.search(query, size); //DB를 읽지 않는다 (UsernameSearch)
+    }
+
+    @GetMapping("/members/keyset") //http://localhost:8080/members/keyset?sort=USERNAME&size=5&cursor={nextCursor}
+    public CursorSlice<MemberDto> keyset(@RequestParam(value = "sort", defaultValue = "USERNAME") MemberCursor.Key key,
+                                         @RequestParam(value = "cursor", required = false) String token,
+                                         @RequestParam(value = "size", defaultValue = "5") int size) {
+        MemberCursor cursor = token == null ? MemberCursor.first(key) : decode(token);
+        if (cursor.getKey() != key) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cursor was issued for sort=" + cursor.getKey());
+        }
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        Slice<Member> slice = memberRepository.findByKeyset(cursor, limit);
+        List<Member> content = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? MemberCursor.after(key, content.get(content.size() - 1)).encode()
+                : null;
+
+        return new CursorSlice<>(slice.map(MemberDto::new).getContent(), limit, slice.hasNext(), nextCursor);
+    }
+
+    private static MemberCursor decode(String token) {
+        try {
+            return MemberCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/members/export") //전체 회원을 한 줄에 하나씩 JSON으로 내려준다 (NDJSON)
+    public ResponseEntity<StreamingResponseBody> export() {
+        //StreamingResponseBody는 컨트롤러가 반환된 후 별도 스레드에서 실행되므로 트랜잭션을 직접 열어야 한다
+        StreamingResponseBody body = out -> transactionTemplate.execute(status -> {
+            try (Stream<MemberDto> members = memberRepository.streamMemberDto(exportFetchSize)) {
+                int written = 0;
+                for (MemberDto member : (Iterable<MemberDto>) members::iterator) {
+                    out.write(objectMapper.writeValueAsBytes(member));
+                    out.write('\n');
+                    if (++written % exportFetchSize == 0) {
+                        out.flush(); //fetchSize 단위로 클라이언트에 밀어낸다
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        });
+
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(body);
     }
 
     //@PostConstruct //스프링 애플리케이션이 올라올 때 실행된다
     public void init() {
-        for (int i = 0; i < 100; i++) {
-            memberRepository.save(new Member("user" + i, i));
-        }
+        //save()를 100번 호출하는 대신 JDBC batch로 저장
+        memberImportService.importMembers(IntStream.range(0, 100)
+                .mapToObj(i -> new Member("user" + i, i)));
     }
 }
@@ -0,0 +1,21 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class CursorSlice<T> {
+
+    private final List<T> content;
+    private final int size;
+    private final boolean hasNext;
+    private final String nextCursor; //마지막 페이지면 null
+
+    public CursorSlice(List<T> content, int size, boolean hasNext, String nextCursor) {
+        this.content = content;
+        this.size = size;
+        this.hasNext = hasNext;
+        this.nextCursor = nextCursor;
+    }
+}
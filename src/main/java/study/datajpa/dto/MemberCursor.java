@@ -0,0 +1,78 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import study.datajpa.entity.Member;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@Getter
+public class MemberCursor {
+
+    //keyset(seek) 페이징의 정렬 기준. 항상 id를 보조 키로 붙여서 정렬 순서를 유일하게 만든다
+    public enum Key {
+        USERNAME, AGE
+    }
+
+    private final Key key;
+    private final String username;
+    private final int age;
+    private final Long id; //null이면 첫 페이지
+
+    private MemberCursor(Key key, String username, int age, Long id) {
+        this.key = key;
+        this.username = username;
+        this.age = age;
+        this.id = id;
+    }
+
+    public static MemberCursor first(Key key) {
+        return new MemberCursor(key, null, 0, null);
+    }
+
+    public static MemberCursor after(Key key, Member last) {
+        return after(key, last.getUsername(), last.getAge(), last.getId());
+    }
+
+    public static MemberCursor after(Key key, String username, int age, Long id) {
+        return new MemberCursor(key, username, age, id);
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    //토큰 형식: "U:{id}:{username}", username이 null이면 "N:{id}:", 또는 "A:{id}:{age}"를 URL-safe Base64로 인코딩
+    public String encode() {
+        String raw;
+        if (key == Key.USERNAME) {
+            raw = username != null ? "U:" + id + ":" + username : "N:" + id + ":";
+        } else {
+            raw = "A:" + id + ":" + age;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+            Long id = Long.valueOf(parts[1]);
+            switch (parts[0]) {
+                case "U":
+                    return new MemberCursor(Key.USERNAME, parts[2], 0, id);
+                case "N":
+                    return new MemberCursor(Key.USERNAME, null, 0, id);
+                case "A":
+                    return new MemberCursor(Key.AGE, null, Integer.parseInt(parts[2]), id);
+                default:
+                    throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+        } catch (IllegalArgumentException e) { //NumberFormatException 포함
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+}
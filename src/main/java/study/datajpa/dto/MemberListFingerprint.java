@@ -0,0 +1,33 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+//회원 목록(/members)이 바뀌었는지 목록을 읽지 않고 판단하는 값, MemberRepository.findListFingerprint
+//member_list_version row의 version과 수정 시간, 모든 노드가 같은 row를 읽으므로 노드가 달라도, 재시작해도 같은 값이다
+@Getter
+@ToString
+public class MemberListFingerprint {
+
+    private final long version;
+    private final LocalDateTime lastModifiedDate;
+
+    public MemberListFingerprint(long version, LocalDateTime lastModifiedDate) {
+        this.version = version;
+        this.lastModifiedDate = lastModifiedDate;
+    }
+
+    //같은 URL(페이지, 정렬)에 대해서만 비교되므로 페이지 정보는 넣지 않는다
+    //ddl-auto: create로 테이블을 다시 만들면 version이 0부터 시작하므로 row를 만든 시간도 넣는다
+    public String getETag() {
+        return "\"members-" + version + "-" + getLastModified() + "\"";
+    }
+
+    //시스템 기본 시간대의 LocalDateTime
+    public long getLastModified() {
+        return lastModifiedDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
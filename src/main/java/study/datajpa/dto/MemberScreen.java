@@ -0,0 +1,23 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+//회원 목록 화면: 회원 페이지, 팀별 요약, 전체 개수 (MemberQueryRepository.memberScreen)
+@Getter
+public class MemberScreen {
+
+    private final Slice<MemberDto> members;
+    private final List<TeamSummaryDto> teams;
+    private final long memberCount;
+    private final long teamCount;
+
+    public MemberScreen(Slice<MemberDto> members, List<TeamSummaryDto> teams, long memberCount, long teamCount) {
+        this.members = members;
+        this.teams = teams;
+        this.memberCount = memberCount;
+        this.teamCount = teamCount;
+    }
+}
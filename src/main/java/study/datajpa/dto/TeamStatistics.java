@@ -0,0 +1,51 @@
+package study.datajpa.dto;
+
+import lombok.Getter;
+import lombok.ToString;
+import study.datajpa.entity.TeamAgeCount;
+
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+@Getter
+@ToString
+public class TeamStatistics {
+
+    public static final int HISTOGRAM_BUCKET = 10; //나이 분포는 10살 단위
+
+    private final Long teamId;
+    private final long memberCount;
+    private final long ageSum;
+    private final Integer minAge; //회원이 없으면 null
+    private final Integer maxAge;
+    private final SortedMap<Integer, Long> ageHistogram; //구간 시작 나이 -> 회원 수
+
+    private TeamStatistics(Long teamId, long memberCount, long ageSum, Integer minAge, Integer maxAge, SortedMap<Integer, Long> ageHistogram) {
+        this.teamId = teamId;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.ageHistogram = ageHistogram;
+    }
+
+    //counts는 나이 순서, 회원 수가 0인 나이는 없다
+    public static TeamStatistics of(Long teamId, List<TeamAgeCount> counts) {
+        long memberCount = 0;
+        long ageSum = 0;
+        SortedMap<Integer, Long> histogram = new TreeMap<>();
+        for (TeamAgeCount count : counts) {
+            memberCount += count.getMemberCount();
+            ageSum += (long) count.getAge() * count.getMemberCount();
+            histogram.merge(Math.floorDiv(count.getAge(), HISTOGRAM_BUCKET) * HISTOGRAM_BUCKET, count.getMemberCount(), Long::sum);
+        }
+        Integer minAge = counts.isEmpty() ? null : counts.get(0).getAge();
+        Integer maxAge = counts.isEmpty() ? null : counts.get(counts.size() - 1).getAge();
+        return new TeamStatistics(teamId, memberCount, ageSum, minAge, maxAge, histogram);
+    }
+
+    public Double getAverageAge() {
+        return memberCount == 0 ? null : (double) ageSum / memberCount;
+    }
+}
@@ -0,0 +1,11 @@
+package study.datajpa.dto;
+
+import lombok.Data;
+
+@Data
+public class UsernameMatch {
+
+    private final Long id;
+    private final String username;
+    private final boolean prefix; //false면 중간에 포함
+}
@@ -2,18 +2,13 @@ package study.datajpa.entity;
 
 import lombok.Getter;
 import org.springframework.data.annotation.CreatedBy;
-import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
-import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditStamp;
 
 import javax.persistence.Column;
-import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
-import java.time.LocalDateTime;
 
-@EntityListeners(AuditingEntityListener.class)
-@MappedSuperclass
+@MappedSuperclass //리스너는 BaseTimeEntity에서 상속, 여기서 또 붙이면 엔티티마다 두번 호출된다
 @Getter
 public class BaseEntity extends BaseTimeEntity {
 
@@ -23,4 +18,17 @@ public class BaseEntity extends BaseTimeEntity {
 
     @LastModifiedBy
     private String lastModifiedBy;
+
+    @Override
+    public void markCreated(AuditStamp stamp) {
+        super.markCreated(stamp);
+        createdBy = stamp.getAuditor();
+        lastModifiedBy = stamp.getAuditor();
+    }
+
+    @Override
+    public void markModified(AuditStamp stamp) {
+        super.markModified(stamp);
+        lastModifiedBy = stamp.getAuditor();
+    }
 }
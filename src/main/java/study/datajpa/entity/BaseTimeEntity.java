@@ -3,17 +3,19 @@ package study.datajpa.entity;
 import lombok.Getter;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditListener;
+import study.datajpa.audit.AuditStamp;
+import study.datajpa.audit.Audited;
 
 import javax.persistence.Column;
 import javax.persistence.EntityListeners;
 import javax.persistence.MappedSuperclass;
 import java.time.LocalDateTime;
 
-@EntityListeners(AuditingEntityListener.class) //엔티티를 생성, 변경할 때 변경한 사람과 시간을 추적하고 싶으면? Auditing
+@EntityListeners(AuditListener.class) //엔티티를 생성, 변경할 때 변경한 사람과 시간을 추적하고 싶으면? Auditing, AuditingEntityListener보다 가벼운 버전
 @MappedSuperclass
 @Getter
-public class BaseTimeEntity {
+public class BaseTimeEntity implements Audited {
 
     @CreatedDate
     @Column(updatable = false)
@@ -21,4 +23,15 @@ public class BaseTimeEntity {
 
     @LastModifiedDate
     private LocalDateTime lastModifiedDate;
+
+    @Override
+    public void markCreated(AuditStamp stamp) {
+        createdDate = stamp.getTime();
+        lastModifiedDate = stamp.getTime(); //AuditingEntityListener처럼 등록 시점에 수정 시간도 채운다
+    }
+
+    @Override
+    public void markModified(AuditStamp stamp) {
+        lastModifiedDate = stamp.getTime();
+    }
 }
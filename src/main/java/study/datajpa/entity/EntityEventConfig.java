@@ -0,0 +1,42 @@
+package study.datajpa.entity;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+
+//JPA 엔티티 리스너로는 이전 상태(어느 팀에서 나갔는지)를 알 수 없어서 하이버네이트 이벤트 리스너로 등록한다
+@Configuration
+public class EntityEventConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer entityEventListeners() {
+        return properties -> properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> Collections.singletonList(new EventListenerIntegrator()));
+    }
+
+    static class EventListenerIntegrator implements Integrator {
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            TeamStatisticsListener teamStatistics = new TeamStatisticsListener(sessionFactory);
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            registry.appendListeners(EventType.POST_INSERT, teamStatistics);
+            registry.appendListeners(EventType.POST_UPDATE, teamStatistics);
+            registry.appendListeners(EventType.POST_DELETE, teamStatistics);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
@@ -5,7 +5,9 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.domain.Persistable;
-import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+import study.datajpa.audit.AuditListener;
+import study.datajpa.audit.AuditStamp;
+import study.datajpa.audit.Audited;
 
 import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
@@ -14,9 +16,9 @@ import javax.persistence.Id;
 import java.time.LocalDateTime;
 
 @Entity
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners(AuditListener.class)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
-public class Item implements Persistable<String> {
+public class Item implements Persistable<String>, Audited {
 
     //SimpleJpaRepository의 save() 참고
     //JPA 식별자 생성 전략이 @GeneratedValue면 save() 호출 시점에 식별자 값이 없으므로 새로운 엔티티로 인식하고 정상 동작한다.
@@ -43,4 +45,13 @@ public class Item implements Persistable<String> {
     public boolean isNew() {
         return createdDate == null;
     }
+
+    @Override
+    public void markCreated(AuditStamp stamp) {
+        createdDate = stamp.getTime();
+    }
+
+    @Override
+    public void markModified(AuditStamp stamp) {
+    }
 }
@@ -1,26 +1,49 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import study.datajpa.id.PooledSequenceGenerator;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(MemberEntityListener.class) //변경 이벤트 발행, 캐시 무효화 등에 사용
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //쿼리 캐시는 id만 저장하므로 엔티티도 캐시해야 id별 추가 조회가 없다
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
+@Table(indexes = { //리포지토리 쿼리 모양에 맞춘 인덱스, 새 쿼리가 테이블 전체를 읽지 않는지는 QueryPlanTest로 확인한다
+        @Index(name = "member_username_idx", columnList = "username, member_id"), //username =, in, (username, id) keyset 정렬까지, age 조건은 같은 이름 몇 row에서 거른다
+        @Index(name = "member_age_username_idx", columnList = "age, username"), //age =, >=, where age = ? order by username desc (findByPage)
+        @Index(name = "member_team_idx", columnList = "team_id")}) //팀 조인, 팀별 통계 재계산
 @NamedQuery( //잘 안씀, 대신 애플리케이션 로딩시점에 query를 파싱해봄, 그 과정에서 오류를 잡을 수 있는 장점
         name="Member.findByUsername",
         query="select m from Member m where m.username = :username"
 )
 public class Member extends BaseEntity {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq") //id를 블록 단위로 받아 insert마다 시퀀스를 호출하지 않는다, JDBC batch도 유지
+    @GenericGenerator(name = "member_seq", strategy = "study.datajpa.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = PooledSequenceGenerator.SEQUENCE_PARAM, value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
     private int age;
 
+    @Version //동시에 고치면 나중에 커밋하는 쪽이 실패한다, 재시도는 @RetryOnOptimisticLock
+    private Long version;
+
+    //MemberRepository.claimNext로 가져간 claim 토큰과 만료 시간, 만료되면 다른 작업자가 다시 가져갈 수 있다
+    private String claimedBy;
+    private LocalDateTime claimedUntil;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "team_id")
     private Team team;
@@ -43,9 +66,15 @@ public class Member extends BaseEntity {
         this.age = age;
     }
 
+    //이전 팀에서 빼고 새 팀에 넣는다, 양쪽 다 Team.members를 초기화하지 않는다 (Team.addMember, removeMember)
     public void changeTeam(Team team) {
+        if (this.team != null) {
+            this.team.removeMember(this);
+        }
         this.team = team;
-        team.getMembers().add(this);
+        if (team != null) {
+            team.addMember(this);
+        }
     }
 
 }
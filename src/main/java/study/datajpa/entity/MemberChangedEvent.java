@@ -0,0 +1,31 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class MemberChangedEvent {
+
+    public enum Type {
+        PERSISTED, UPDATED, REMOVED, BULK_UPDATED
+    }
+
+    private final Type type;
+    private final Long memberId; //벌크 연산이면 null, 어떤 row가 바뀌었는지 알 수 없다
+    private final String username; //이벤트 시점의 username, 벌크 연산이면 null (UsernameSearch가 다시 조회하지 않게)
+
+    private MemberChangedEvent(Type type, Long memberId, String username) {
+        this.type = type;
+        this.memberId = memberId;
+        this.username = username;
+    }
+
+    public static MemberChangedEvent of(Type type, Member member) {
+        return new MemberChangedEvent(type, member.getId(), member.getUsername());
+    }
+
+    public static MemberChangedEvent bulkUpdated() {
+        return new MemberChangedEvent(Type.BULK_UPDATED, null, null);
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.entity;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//스프링 부트가 하이버네이트 BeanContainer를 스프링으로 설정해주므로 엔티티 리스너도 생성자 주입을 받을 수 있다
+public class MemberEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public MemberEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    public void postPersist(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.PERSISTED, member));
+    }
+
+    @PostUpdate
+    public void postUpdate(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.UPDATED, member));
+    }
+
+    @PostRemove
+    public void postRemove(Member member) {
+        publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.REMOVED, member));
+    }
+}
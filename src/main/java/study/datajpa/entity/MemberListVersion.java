@@ -0,0 +1,27 @@
+package study.datajpa.entity;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.LocalDateTime;
+
+//회원 목록(/members)의 버전, row는 하나(ID)뿐이다
+//회원이나 팀을 바꾸는 트랜잭션이 커밋 직전에 같은 트랜잭션에서 version을 올린다 (MemberListVersionUpdater)
+//목록이 바뀌었는지는 이 row 하나만 읽어서 판단한다 (MemberRepository.findListFingerprint)
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberListVersion {
+
+    public static final long ID = 1L;
+
+    @Id
+    private Long id;
+    private long version;
+    private LocalDateTime lastModifiedDate; //마지막으로 올린 시간, 처음에는 row를 만든 시간
+}
@@ -1,12 +1,26 @@
 package study.datajpa.entity;
 
 import lombok.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.OptimisticLock;
+import org.hibernate.annotations.Parameter;
+import study.datajpa.id.PooledSequenceGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) //거의 바뀌지 않고 Member.team으로 계속 조회되므로 2차 캐시
+@EntityListeners(TeamEntityListener.class) //이름이 바뀌면 회원 목록 버전을 올린다 (MemberListVersionUpdater)
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -14,16 +28,78 @@ import java.util.List;
 public class Team extends BaseEntity {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq") //Member와 같은 방식, 시퀀스만 따로 쓴다
+    @GenericGenerator(name = "team_seq", strategy = "study.datajpa.id.PooledSequenceGenerator",
+            parameters = @Parameter(name = PooledSequenceGenerator.SEQUENCE_PARAM, value = "team_seq"))
     @Column(name = "team_id")
     private Long id;
     private String name;
 
+    @Version
+    private Long version;
+
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OptimisticLock(excluded = true) //회원이 들어오고 나가는 것으로 팀 버전을 올리지 않는다, 팀 이름 변경과 충돌하지 않게
     @OneToMany(mappedBy = "team")
+    @Getter(AccessLevel.NONE)
     private List<Member> members = new ArrayList<>();
 
+    //팀 크기를 회원 테이블을 읽지 않고 알 수 있다
+    //회원 등록/삭제/팀 이동을 TeamStatisticsListener가 모아서 커밋 직전에 member_count = member_count + ? 로 고친다, 동시에 바꿔도 서로 덮어쓰지 않는다
+    //엔티티 값으로 덮어쓰지 않도록 updatable = false, 영속성 컨텍스트에 있는 값은 읽어온 시점의 값 (최신 값은 TeamRepository.findMemberCount)
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0") //JPA를 거치지 않고 넣은 팀도 0부터
+    @Column(nullable = false, updatable = false)
+    private int memberCount;
+
+    //members를 읽기 전에 들어오고 나간 회원, 읽을 때(getMembers) 반영한다
+    //바이트코드 향상이 켜져 있으면 members 필드를 처음 읽을 때 변경 추적이 컬렉션 크기를 기록하느라 컬렉션 전체를 읽는다
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private List<Member> arrivals = new ArrayList<>();
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean departures;
+
     public Team(String name) {
         this.name = name;
     }
 
+    public List<Member> getMembers() {
+        if (departures || !arrivals.isEmpty()) {
+            members.addAll(arrivals);
+            arrivals.clear();
+            Set<Member> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            members.removeIf(member -> !owns(member) || !seen.add(member)); //나간 회원, 이미 읽혀 있어서 두번 들어간 회원
+            departures = false;
+        }
+        return members;
+    }
+
+    //Member.changeTeam에서만 부른다, 팀에 회원이 아무리 많아도 members를 초기화하지 않는다
+    //mappedBy 쪽 PersistentBag은 초기화 전이면 add를 큐에 쌓아두고 초기화할 때 반영한다
+    void addMember(Member member) {
+        if (Hibernate.isPropertyInitialized(this, "members")) {
+            members.add(member);
+        } else {
+            arrivals.add(member);
+        }
+    }
+
+    void removeMember(Member member) {
+        if (Hibernate.isPropertyInitialized(this, "members") && Hibernate.isInitialized(members)) {
+            members.remove(member);
+        } else {
+            departures = true;
+        }
+    }
+
+    private boolean owns(Member member) {
+        Team team = member.getTeam();
+        return team == this || (team != null && id != null && id.equals(team.getId())); //프록시여도 id는 초기화 없이 읽는다
+    }
+
 }
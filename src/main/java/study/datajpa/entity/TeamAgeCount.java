@@ -0,0 +1,36 @@
+package study.datajpa.entity;
+
+import lombok.*;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+//팀별 나이별 회원 수, TeamStatisticsListener가 커밋 직전에 증감만 반영한다 (TeamStatisticsDeltas)
+//팀 통계(TeamRepository.findStatistics)는 이 테이블의 팀 row만 읽는다, 팀에 회원이 몇명이든 나이 종류 수만큼만 읽는다
+@Entity
+@IdClass(TeamAgeCount.Key.class)
+@Table(indexes = @Index(name = "team_age_count_team_idx", columnList = "teamId, age")) //기본키는 (age, team_id) 순서로 만들어져서 팀으로 찾을 때 쓸 수 없다
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class TeamAgeCount {
+
+    @Id
+    private Long teamId;
+    @Id
+    private int age;
+
+    private long memberCount; //회원이 모두 나가도 row는 0으로 남는다, TeamStatisticsService.rebuild/reconcile에서 지운다
+
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long teamId;
+        private int age;
+    }
+}
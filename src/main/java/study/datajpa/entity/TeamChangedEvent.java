@@ -0,0 +1,20 @@
+package study.datajpa.entity;
+
+import lombok.Getter;
+import lombok.ToString;
+
+//팀 이름이 바뀌면 회원 목록(teamName)도 바뀐다, MemberListVersionUpdater
+@Getter
+@ToString
+public class TeamChangedEvent {
+
+    private final Long teamId;
+
+    private TeamChangedEvent(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public static TeamChangedEvent of(Team team) {
+        return new TeamChangedEvent(team.getId());
+    }
+}
@@ -0,0 +1,26 @@
+package study.datajpa.entity;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+//MemberEntityListener와 같은 방식, 새 팀은 그 팀에 들어간 회원의 변경 이벤트로 알 수 있으므로 수정과 삭제만
+public class TeamEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public TeamEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostUpdate
+    public void postUpdate(Team team) {
+        publisher.publishEvent(TeamChangedEvent.of(team));
+    }
+
+    @PostRemove
+    public void postRemove(Team team) {
+        publisher.publishEvent(TeamChangedEvent.of(team));
+    }
+}
@@ -0,0 +1,129 @@
+package study.datajpa.entity;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.*;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import study.datajpa.statistics.TeamStatisticsDeltas;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Member insert/delete/팀 이동/나이 변경을 세션(트랜잭션)마다 모아 두었다가 커밋 직전에 Team.memberCount와 TeamAgeCount에 증감으로 반영한다
+//벌크 연산은 이벤트가 없다, bulkAgePlus는 TeamStatisticsAspect가 옮기고 나머지(deleteAllInBatch 등)는 TeamStatisticsService.reconcile로 맞춘다
+class TeamStatisticsListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SessionFactoryImplementor sessionFactory;
+    //세션마다 첫 이벤트에서 넣고 커밋 직전(롤백이면 트랜잭션 종료) 처리에서 뺀다
+    private final Map<SharedSessionContractImplementor, PendingDeltas> pending = new ConcurrentHashMap<>();
+
+    TeamStatisticsListener(SessionFactoryImplementor sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getState();
+            deltas(event.getSession()).add(teamId(event.getPersister(), state), age(event.getPersister(), state), 1);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Member) || event.getOldState() == null) {
+            return; //이전 상태를 모르는 준영속 update는 reconcile로 맞춘다
+        }
+        EntityPersister persister = event.getPersister();
+        Long beforeTeam = teamId(persister, event.getOldState());
+        Long afterTeam = teamId(persister, event.getState());
+        int beforeAge = age(persister, event.getOldState());
+        int afterAge = age(persister, event.getState());
+        if (!Objects.equals(beforeTeam, afterTeam) || beforeAge != afterAge) {
+            TeamStatisticsDeltas deltas = deltas(event.getSession());
+            deltas.add(beforeTeam, beforeAge, -1);
+            deltas.add(afterTeam, afterAge, 1);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Member) {
+            Object[] state = event.getDeletedState();
+            deltas(event.getSession()).add(teamId(event.getPersister(), state), age(event.getPersister(), state), -1);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    @Deprecated //5.4에서는 아직 abstract라 구현해야 한다
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private TeamStatisticsDeltas deltas(EventSource session) {
+        return pending.computeIfAbsent(session, key -> {
+            PendingDeltas deltas = new PendingDeltas();
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) deltas);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) deltas);
+            return deltas;
+        }).deltas;
+    }
+
+    private static Long teamId(EntityPersister persister, Object[] state) {
+        Object team = state[persister.getEntityMetamodel().getPropertyIndex("team")];
+        if (team instanceof HibernateProxy) {
+            return (Long) ((HibernateProxy) team).getHibernateLazyInitializer().getIdentifier();
+        }
+        return team == null ? null : ((Team) team).getId();
+    }
+
+    private static int age(EntityPersister persister, Object[] state) {
+        return (Integer) state[persister.getEntityMetamodel().getPropertyIndex("age")];
+    }
+
+    private class PendingDeltas implements BeforeTransactionCompletionProcess, AfterTransactionCompletionProcess {
+
+        private final TeamStatisticsDeltas deltas = new TeamStatisticsDeltas();
+        private Set<Long> teamIds;
+
+        @Override
+        public void doBeforeTransactionCompletion(SessionImplementor session) {
+            try {
+                teamIds = deltas.teamIds();
+                if (teamIds.isEmpty()) {
+                    return;
+                }
+                session.doWork(deltas::apply);
+                evict(); //2차 캐시에 이전 memberCount가 남지 않게
+            } finally {
+                pending.remove(session); //커밋 직전 flush 이후에는 이벤트가 더 오지 않는다, 종료 처리가 건너뛰어져도 남지 않게
+            }
+        }
+
+        //커밋 전에 다른 트랜잭션이 이전 값을 다시 캐시했을 수 있으므로 한번 더 (MemberCacheInvalidator와 같은 이유)
+        @Override
+        public void doAfterTransactionCompletion(boolean success, SharedSessionContractImplementor session) {
+            pending.remove(session); //롤백이면 커밋 직전 처리가 없다
+            if (success && teamIds != null) {
+                evict();
+            }
+        }
+
+        private void evict() {
+            teamIds.forEach(teamId -> sessionFactory.getCache().evictEntityData(Team.class, teamId));
+        }
+    }
+}
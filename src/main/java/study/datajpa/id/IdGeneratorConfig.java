@@ -0,0 +1,15 @@
+package study.datajpa.id;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean //PooledSequenceGenerator는 하이버네이트가 만들기 때문에 설정으로 넘긴다
+    public HibernatePropertiesCustomizer idBlockSize(@Value("${datajpa.id.block-size:100}") int blockSize) {
+        return properties -> properties.put(PooledSequenceGenerator.BLOCK_SIZE, blockSize);
+    }
+}
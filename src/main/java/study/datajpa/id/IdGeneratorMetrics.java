@@ -0,0 +1,67 @@
+package study.datajpa.id;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.metamodel.spi.MetamodelImplementor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+//PooledSequenceGenerator 시퀀스별 발급 id 수, 실제 시퀀스 호출 수, 블록 덕분에 생략한 호출 수 (tag sequence)
+//ex) /actuator/metrics/datajpa.id.sequence.calls.avoided?tag=sequence:member_seq
+//MeterBinder는 MeterRegistry를 만들 때 바로 묶이는데, EntityManagerFactory가 백그라운드에서 뜨는 중이면(fast 프로필) 그동안 다른 빈 생성이 멈추므로 모든 빈을 만든 뒤에 묶는다
+@Component
+@RequiredArgsConstructor
+public class IdGeneratorMetrics implements SmartInitializingSingleton {
+
+    private final EntityManagerFactory emf;
+    private final MeterRegistry registry;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        for (PooledSequenceGenerator generator : generators()) {
+            String sequence = generator.getSequenceName();
+            FunctionCounter.builder("datajpa.id.generated", generator, PooledSequenceGenerator::getGenerated)
+                    .description("Identifiers handed out by the generator")
+                    .tag("sequence", sequence)
+                    .register(registry);
+            FunctionCounter.builder("datajpa.id.sequence.calls", generator, PooledSequenceGenerator::getSequenceCalls)
+                    .description("Round-trips to the database sequence")
+                    .tag("sequence", sequence)
+                    .register(registry);
+            FunctionCounter.builder("datajpa.id.sequence.calls.avoided", generator, PooledSequenceGenerator::getSequenceCallsAvoided)
+                    .description("Identifiers served from the in-memory block without a sequence call")
+                    .tag("sequence", sequence)
+                    .register(registry);
+            Gauge.builder("datajpa.id.block.size", generator, PooledSequenceGenerator::getBlockSize)
+                    .tag("sequence", sequence)
+                    .register(registry);
+        }
+    }
+
+    //상속 관계 엔티티는 같은 generator를 공유하므로 시퀀스 이름으로 중복 제거
+    Collection<PooledSequenceGenerator> generators() {
+        MetamodelImplementor metamodel = emf.unwrap(SessionFactoryImplementor.class).getMetamodel();
+        Map<String, PooledSequenceGenerator> generators = metamodel.entityPersisters().values().stream()
+                .map(persister -> persister.getIdentifierGenerator())
+                .filter(PooledSequenceGenerator.class::isInstance)
+                .map(PooledSequenceGenerator.class::cast)
+                .collect(Collectors.toMap(PooledSequenceGenerator::getSequenceName, generator -> generator, (a, b) -> a));
+        return generators.values();
+    }
+
+    public PooledSequenceGenerator generator(String sequenceName) {
+        return generators().stream()
+                .filter(generator -> generator.getSequenceName().equals(sequenceName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("no pooled sequence " + sequenceName));
+    }
+}
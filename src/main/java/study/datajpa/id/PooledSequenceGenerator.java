@@ -0,0 +1,67 @@
+package study.datajpa.id;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+//엔티티마다 별도 시퀀스, DB 시퀀스는 blockSize씩 증가하고 그 사이 값은 메모리에서 나눠준다 (pooled-lo)
+//노드마다 서로 다른 블록을 받으므로 여러 애플리케이션이 같은 DB를 써도 겹치지 않는다
+//DB 시퀀스의 increment가 blockSize와 다르면 기동 실패 (hibernate.id.sequence.increment_size_mismatch_strategy)
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String BLOCK_SIZE = "datajpa.id.block_size";
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private final LongAdder generated = new LongAdder();
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        //@Parameter로 increment_size, optimizer를 직접 지정하면 그 값을 쓴다
+        if (!params.containsKey(INCREMENT_PARAM)) {
+            Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+            int blockSize = ConfigurationHelper.getInt(BLOCK_SIZE, settings, DEFAULT_BLOCK_SIZE);
+            params.setProperty(INCREMENT_PARAM, String.valueOf(blockSize));
+        }
+        params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+        Serializable id = super.generate(session, object);
+        generated.increment();
+        return id;
+    }
+
+    public String getSequenceName() {
+        return getDatabaseStructure().getName();
+    }
+
+    public int getBlockSize() {
+        return getDatabaseStructure().getIncrementSize();
+    }
+
+    public long getGenerated() {
+        return generated.sum();
+    }
+
+    //optimizer가 synchronized 안에서 시퀀스를 호출하므로 timesAccessed는 정확하다
+    public long getSequenceCalls() {
+        return getDatabaseStructure().getTimesAccessed();
+    }
+
+    public long getSequenceCallsAvoided() {
+        return Math.max(0, getGenerated() - getSequenceCalls());
+    }
+}
@@ -0,0 +1,32 @@
+package study.datajpa.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+//@Lock(비관적 락) 리포지토리 메소드가 락을 얻기까지 걸린 시간 (select ... for update 실행 시간)
+//ex) /actuator/metrics/datajpa.lock.wait?tag=method:findLockByUsername
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class LockWaitAspect {
+
+    private final MeterRegistry registry;
+
+    @Around("execution(@org.springframework.data.jpa.repository.Lock * study.datajpa.repository.*Repository.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            sample.stop(Timer.builder("datajpa.lock.wait")
+                    .description("Time spent acquiring pessimistic row locks")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .register(registry));
+        }
+    }
+}
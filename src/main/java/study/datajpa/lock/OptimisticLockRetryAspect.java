@@ -0,0 +1,99 @@
+package study.datajpa.lock;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//@RetryOnOptimisticLock 메소드를 재시도한다
+//@Transactional(LOWEST_PRECEDENCE)보다 바깥에서 실행되므로 커밋 시점의 충돌도 잡고, 재시도는 새 트랜잭션/영속성 컨텍스트에서 실행된다
+@Slf4j
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@RequiredArgsConstructor
+public class OptimisticLockRetryAspect {
+
+    private final MeterRegistry registry;
+
+    @Around("@annotation(study.datajpa.lock.RetryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        //이미 바깥 트랜잭션 안이면 같은(롤백될) 영속성 컨텍스트로 다시 실행하게 되므로 재시도는 바깥에 맡긴다
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        RetryOnOptimisticLock retry = AnnotationUtils.findAnnotation(signature.getMethod(), RetryOnOptimisticLock.class);
+        String method = signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+                if (attempt >= retry.maxAttempts()) {
+                    counter("datajpa.lock.retry.exhausted", method).increment();
+                    log.warn("optimistic lock retries exhausted: {} after {} attempts", method, attempt);
+                    throw e;
+                }
+                long backoff = backoff(retry, attempt);
+                counter("datajpa.lock.retries", method).increment();
+                Timer.builder("datajpa.lock.retry.backoff")
+                        .description("Time slept before retrying an optimistic lock failure")
+                        .tag("method", method)
+                        .register(registry)
+                        .record(backoff, TimeUnit.MILLISECONDS);
+                log.debug("optimistic lock failure in {} (attempt {}), retrying in {}ms", method, attempt, backoff);
+                sleep(backoff, e);
+            }
+        }
+    }
+
+    static long backoff(RetryOnOptimisticLock retry, int attempt) {
+        long ceiling = Math.min(retry.maxBackoffMillis(), retry.backoffMillis() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    //커밋 시점 충돌은 JpaTransactionManager가 ObjectOptimisticLockingFailureException으로 바꿔서 던진다
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockingFailureException || cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Counter counter(String name, String method) {
+        return Counter.builder(name)
+                .tag("method", method)
+                .register(registry);
+    }
+
+    private static void sleep(long millis, RuntimeException failure) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+}
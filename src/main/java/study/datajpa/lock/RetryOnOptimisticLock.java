@@ -0,0 +1,21 @@
+package study.datajpa.lock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//OptimisticLockException(@Version 충돌)이 나면 메소드를 처음부터 다시 실행한다, 시도마다 새 트랜잭션
+//대기 시간은 0 ~ min(maxBackoffMillis, backoffMillis * 2^(시도-1)) 사이 랜덤 (full jitter), 동시에 충돌한 쪽끼리 또 부딪히지 않게
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+
+    int maxAttempts() default 3;
+
+    long backoffMillis() default 20;
+
+    long maxBackoffMillis() default 500;
+}
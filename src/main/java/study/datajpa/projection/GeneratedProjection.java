@@ -0,0 +1,16 @@
+package study.datajpa.projection;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//인터페이스 프로젝션을 프록시 대신 기동 시 만든 구현 클래스로 채운다 (ProjectionClass)
+//튜플 컬럼을 이름이 아니라 위치로 넣으므로 @Query의 select 별칭은 게터 순서(ProjectionInformation.getInputProperties)와 같아야 한다
+//닫힌 프로젝션만 가능, 기동할 때 ProjectionQueryValidator가 검증
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface GeneratedProjection {
+}
@@ -0,0 +1,21 @@
+package study.datajpa.projection;
+
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.Map;
+
+//튜플 결과(TupleBackedMap)를 @GeneratedProjection 인터페이스로 바꿀 때만 ProjectionClass를 쓰고 나머지는 기존 프록시
+class GeneratedProjectionFactory extends SpelAwareProxyProjectionFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T createProjection(Class<T> projectionType, Object source) {
+        if (source instanceof Map) {
+            ProjectionClass generated = ProjectionClass.of(projectionType);
+            if (generated != null) {
+                return (T) generated.create(((Map<?, ?>) source).values());
+            }
+        }
+        return super.createProjection(projectionType, source);
+    }
+}
@@ -0,0 +1,176 @@
+package study.datajpa.projection;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.field.FieldDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.TypeManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.dynamic.scaffold.subclass.ConstructorStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.Implementation;
+import net.bytebuddy.implementation.bytecode.ByteCodeAppender;
+import net.bytebuddy.implementation.bytecode.StackManipulation;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.collection.ArrayAccess;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+import net.bytebuddy.implementation.bytecode.member.FieldAccess;
+import net.bytebuddy.implementation.bytecode.member.MethodInvocation;
+import net.bytebuddy.implementation.bytecode.member.MethodReturn;
+import net.bytebuddy.implementation.bytecode.member.MethodVariableAccess;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static net.bytebuddy.matcher.ElementMatchers.is;
+import static net.bytebuddy.matcher.ElementMatchers.isConstructor;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+//@GeneratedProjection 인터페이스마다 한번 만드는 구현 클래스, 게터마다 final 필드 하나
+//생성자는 Object[]를 받아 i번째 값을 i번째 프로퍼티 필드에 넣는다 (row마다 프록시, Map 조회 없이 배열 복사 한번)
+final class ProjectionClass {
+
+    private static final SpelAwareProxyProjectionFactory INFORMATION = new SpelAwareProxyProjectionFactory();
+    private static final ConversionService CONVERSION = DefaultConversionService.getSharedInstance();
+
+    private static final ClassValue<ProjectionClass> GENERATED = new ClassValue<ProjectionClass>() {
+        @Override
+        protected ProjectionClass computeValue(Class<?> type) {
+            return type.isInterface() && type.isAnnotationPresent(GeneratedProjection.class) ? new ProjectionClass(type) : null;
+        }
+    };
+
+    private final Class<?> type;
+    private final List<String> properties;
+    private final Class<?>[] valueTypes;
+    private final Class<?> implementation;
+    private final MethodHandle constructor;
+
+    private ProjectionClass(Class<?> type) {
+        ProjectionInformation information = INFORMATION.getProjectionInformation(type);
+        if (!information.isClosed()) {
+            throw new IllegalStateException("@GeneratedProjection needs a closed projection (no @Value getters): " + type.getName());
+        }
+        List<PropertyDescriptor> descriptors = information.getInputProperties();
+        this.type = type;
+        this.properties = descriptors.stream().map(PropertyDescriptor::getName).collect(Collectors.toList());
+        this.valueTypes = descriptors.stream()
+                .map(descriptor -> ClassUtils.resolvePrimitiveIfNecessary(descriptor.getPropertyType()))
+                .toArray(Class<?>[]::new);
+        this.implementation = define(type, descriptors);
+        try {
+            this.constructor = MethodHandles.publicLookup()
+                    .findConstructor(implementation, MethodType.methodType(void.class, Object[].class))
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("cannot create " + implementation.getName(), e);
+        }
+    }
+
+    //@GeneratedProjection이 없는 타입이면 null
+    static ProjectionClass of(Class<?> type) {
+        return GENERATED.get(type);
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    //튜플 select 순서 = 이 순서
+    List<String> getProperties() {
+        return properties;
+    }
+
+    Class<?> getImplementation() {
+        return implementation;
+    }
+
+    //values는 select 순서대로인 튜플 값 (TupleBackedMap.values())
+    Object create(Collection<?> values) {
+        Object[] row = values.toArray();
+        if (row.length != valueTypes.length) {
+            throw new IllegalArgumentException(type.getSimpleName() + " expects " + properties + " but the query selected " + row.length + " columns");
+        }
+        for (int i = 0; i < row.length; i++) {
+            Object value = row[i];
+            if (value != null && !valueTypes[i].isInstance(value)) { //네이티브 쿼리의 bigint(BigInteger) -> Long 등
+                row[i] = CONVERSION.convert(value, valueTypes[i]);
+            }
+        }
+        try {
+            return (Object) constructor.invokeExact(row);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Class<?> define(Class<?> type, List<PropertyDescriptor> descriptors) {
+        DynamicType.Builder<?> builder = new ByteBuddy()
+                .subclass(Object.class, ConstructorStrategy.Default.NO_CONSTRUCTORS)
+                .implement(type)
+                .name(type.getName() + "$Generated")
+                .modifiers(Visibility.PUBLIC, TypeManifestation.FINAL);
+        List<String> fields = new ArrayList<>();
+        for (PropertyDescriptor descriptor : descriptors) {
+            builder = builder
+                    .defineField(descriptor.getName(), descriptor.getPropertyType(), Visibility.PRIVATE, FieldManifestation.FINAL)
+                    .method(is(descriptor.getReadMethod())).intercept(FieldAccessor.ofField(descriptor.getName()));
+            fields.add(descriptor.getName());
+        }
+        return builder
+                .defineConstructor(Visibility.PUBLIC).withParameters(Object[].class)
+                .intercept(new Implementation.Simple(new AssignFields(fields)))
+                .withToString()
+                .withHashCodeEquals()
+                .make()
+                .load(type.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                .getLoaded();
+    }
+
+    //this.field_i = (T_i) values[i]
+    private static class AssignFields implements ByteCodeAppender {
+
+        private final List<String> fields;
+
+        AssignFields(List<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public Size apply(MethodVisitor methodVisitor, Implementation.Context context, MethodDescription method) {
+            TypeDescription instrumentedType = context.getInstrumentedType();
+            List<StackManipulation> code = new ArrayList<>();
+            code.add(MethodVariableAccess.loadThis());
+            code.add(MethodInvocation.invoke(TypeDescription.OBJECT.getDeclaredMethods().filter(isConstructor()).getOnly()));
+            for (int i = 0; i < fields.size(); i++) {
+                FieldDescription field = instrumentedType.getDeclaredFields().filter(named(fields.get(i))).getOnly();
+                code.add(MethodVariableAccess.loadThis());
+                code.add(MethodVariableAccess.REFERENCE.loadFrom(1));
+                code.add(IntegerConstant.forValue(i));
+                code.add(ArrayAccess.REFERENCE.load());
+                code.add(Assigner.DEFAULT.assign(TypeDescription.Generic.OBJECT, field.getType(), Assigner.Typing.DYNAMIC));
+                code.add(FieldAccess.forField(field).write());
+            }
+            code.add(MethodReturn.VOID);
+            StackManipulation.Size size = new StackManipulation.Compound(code).apply(methodVisitor, context);
+            return new Size(size.getMaximalSize(), method.getStackSize());
+        }
+    }
+}
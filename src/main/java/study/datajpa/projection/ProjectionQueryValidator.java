@@ -0,0 +1,47 @@
+package study.datajpa.projection;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryProxyPostProcessor;
+import org.springframework.data.repository.query.QueryMethod;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+//리포지토리를 만들 때(기동 시) @GeneratedProjection을 반환하는 @Query의 select 별칭이 프로퍼티 순서와 같은지 확인한다
+//파생 쿼리(findProjectionsByUsername)는 Spring Data가 같은 순서로 select 하므로 확인할 것이 없다
+//ProjectionClass는 위치로 넣기 때문에 순서가 다르면 값이 다른 프로퍼티에 들어간다, 그래서 실행 중이 아니라 기동 시 실패시킨다
+class ProjectionQueryValidator implements RepositoryProxyPostProcessor {
+
+    private final SpelAwareProxyProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Override
+    public void postProcess(ProxyFactory factory, RepositoryInformation repositoryInformation) {
+        for (Method method : repositoryInformation.getQueryMethods()) {
+            validate(method, repositoryInformation);
+        }
+    }
+
+    private void validate(Method method, RepositoryInformation repositoryInformation) {
+        Class<?> returnedType = new QueryMethod(method, repositoryInformation, projectionFactory).getReturnedObjectType();
+        ProjectionClass generated = ProjectionClass.of(returnedType);
+        Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+        if (generated == null || query == null || !StringUtils.hasText(query.value())) {
+            return;
+        }
+        List<String> aliases = SelectAliases.of(query.value(), query.nativeQuery());
+        List<String> properties = generated.getProperties();
+        boolean matches = aliases.size() == properties.size();
+        for (int i = 0; matches && i < aliases.size(); i++) {
+            matches = properties.get(i).equalsIgnoreCase(aliases.get(i)); //네이티브 쿼리 라벨은 DB에 따라 대문자가 된다
+        }
+        if (!matches) {
+            throw new IllegalStateException(repositoryInformation.getRepositoryInterface().getSimpleName() + "." + method.getName()
+                    + " selects " + aliases + " but " + returnedType.getSimpleName() + " is filled by position from " + properties);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package study.datajpa.projection;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactoryBean;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.core.support.RepositoryFactorySupport;
+
+import javax.persistence.EntityManager;
+
+//JpaRepositoryFactoryBean과 같고 프로젝션 팩토리만 GeneratedProjectionFactory로 바꾼다
+//datajpa.projection.generated=false면 @GeneratedProjection도 기존처럼 프록시 (별칭 검증은 그대로)
+public class ProjectionRepositoryFactoryBean<T extends Repository<S, ID>, S, ID> extends JpaRepositoryFactoryBean<T, S, ID>
+        implements EnvironmentAware {
+
+    public static final String GENERATED = "datajpa.projection.generated";
+
+    private boolean generated = true;
+    private char escapeCharacter = '\\';
+
+    public ProjectionRepositoryFactoryBean(Class<? extends T> repositoryInterface) {
+        super(repositoryInterface);
+    }
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        generated = environment.getProperty(GENERATED, Boolean.class, true);
+    }
+
+    @Override
+    public void setEscapeCharacter(char escapeCharacter) {
+        super.setEscapeCharacter(escapeCharacter);
+        this.escapeCharacter = escapeCharacter;
+    }
+
+    @Override
+    protected RepositoryFactorySupport createRepositoryFactory(EntityManager entityManager) {
+        JpaRepositoryFactory factory = new JpaRepositoryFactory(entityManager) {
+            @Override
+            protected ProjectionFactory getProjectionFactory(ClassLoader classLoader, BeanFactory beanFactory) {
+                if (!generated) {
+                    return super.getProjectionFactory(classLoader, beanFactory);
+                }
+                GeneratedProjectionFactory projectionFactory = new GeneratedProjectionFactory();
+                projectionFactory.setBeanClassLoader(classLoader);
+                projectionFactory.setBeanFactory(beanFactory);
+                return projectionFactory;
+            }
+        };
+        factory.setEscapeCharacter(EscapeCharacter.of(escapeCharacter));
+        factory.addRepositoryProxyPostProcessor(new ProjectionQueryValidator());
+        return factory;
+    }
+}
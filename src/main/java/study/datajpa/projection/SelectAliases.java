@@ -0,0 +1,60 @@
+package study.datajpa.projection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//@Query 문자열의 select 절에서 컬럼 별칭을 순서대로 뽑는다, 괄호 안(서브쿼리, 함수 인자)의 콤마와 from은 건너뛴다
+final class SelectAliases {
+
+    private static final Pattern ALIAS = Pattern.compile("(?is).*\\s+as\\s+([\\w$]+)");
+    private static final Pattern PATH = Pattern.compile("[\\w$.]+");
+    private static final Pattern SELECT = Pattern.compile("(?is)\\s*select\\s+(distinct\\s+)?");
+
+    private SelectAliases() {
+    }
+
+    //별칭이 없는 항목은 null, 네이티브 쿼리는 컬럼 이름(m.username -> username)이 라벨이 된다
+    static List<String> of(String query, boolean nativeQuery) {
+        Matcher select = SELECT.matcher(query);
+        if (!select.lookingAt()) {
+            throw new IllegalArgumentException("not a select query: " + query);
+        }
+        List<String> aliases = new ArrayList<>();
+        String lower = query.toLowerCase(Locale.ROOT);
+        int depth = 0;
+        int start = select.end();
+        for (int i = start; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && c == ',') {
+                aliases.add(alias(query.substring(start, i), nativeQuery));
+                start = i + 1;
+            } else if (depth == 0 && lower.startsWith("from", i)
+                    && Character.isWhitespace(query.charAt(i - 1))
+                    && (i + 4 == query.length() || Character.isWhitespace(query.charAt(i + 4)))) {
+                aliases.add(alias(query.substring(start, i), nativeQuery));
+                return aliases;
+            }
+        }
+        aliases.add(alias(query.substring(start), nativeQuery));
+        return aliases;
+    }
+
+    private static String alias(String item, boolean nativeQuery) {
+        String trimmed = item.trim();
+        Matcher alias = ALIAS.matcher(trimmed);
+        if (alias.matches()) {
+            return alias.group(1);
+        }
+        if (nativeQuery && PATH.matcher(trimmed).matches()) {
+            return trimmed.substring(trimmed.lastIndexOf('.') + 1);
+        }
+        return null;
+    }
+}
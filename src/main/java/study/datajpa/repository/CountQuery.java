@@ -0,0 +1,27 @@
+package study.datajpa.repository;
+
+import lombok.Getter;
+
+import java.util.function.LongSupplier;
+
+@Getter
+public class CountQuery {
+
+    private final String key;   //캐시 키, 쿼리 이름 + 파라미터
+    private final String table; //조건 없는 전체 count일 때만 지정, 추정치 사용 가능
+    private final LongSupplier exact;
+
+    private CountQuery(String key, String table, LongSupplier exact) {
+        this.key = key;
+        this.table = table;
+        this.exact = exact;
+    }
+
+    public static CountQuery of(String key, LongSupplier exact) {
+        return new CountQuery(key, null, exact);
+    }
+
+    public static CountQuery ofTable(String table, LongSupplier exact) {
+        return new CountQuery("table:" + table, table, exact);
+    }
+}
@@ -0,0 +1,7 @@
+package study.datajpa.repository;
+
+public enum CountStrategy {
+    EXACT,     //매번 count 쿼리 실행 (마지막 페이지면 생략)
+    CACHED,    //짧은 TTL 동안 count 결과를 캐시, Member 변경 시 무효화
+    ESTIMATED  //테이블 통계의 추정치 사용, 작은 테이블이면 CACHED로 동작
+}
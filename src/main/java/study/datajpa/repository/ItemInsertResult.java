@@ -0,0 +1,43 @@
+package study.datajpa.repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class ItemInsertResult {
+
+    public enum Status {
+        INSERTED, DUPLICATE
+    }
+
+    private final Map<String, Status> statuses = new LinkedHashMap<>(); //입력 순서 유지
+
+    void put(String id, Status status) {
+        statuses.put(id, status);
+    }
+
+    public Status statusOf(String id) {
+        return statuses.get(id);
+    }
+
+    public Map<String, Status> getStatuses() {
+        return Collections.unmodifiableMap(statuses);
+    }
+
+    public List<String> getInserted() {
+        return idsWith(Status.INSERTED);
+    }
+
+    public List<String> getDuplicates() {
+        return idsWith(Status.DUPLICATE);
+    }
+
+    private List<String> idsWith(Status status) {
+        return statuses.entrySet().stream()
+                .filter(e -> e.getValue() == status)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
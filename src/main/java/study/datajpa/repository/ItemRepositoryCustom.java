@@ -0,0 +1,18 @@
+package study.datajpa.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Item;
+
+import java.util.Collection;
+import java.util.Set;
+
+public interface ItemRepositoryCustom {
+
+    //id 목록 중 이미 저장된 것만 in 쿼리로 한번에 조회 (findById를 id마다 호출하지 않는다)
+    Set<String> findExistingIds(Collection<String> ids);
+
+    //직접 할당한 id로 JDBC batch insert, 중복 id는 예외(롤백) 대신 결과에 DUPLICATE로 담는다
+    //JDBC로 바로 넣으므로 넘긴 Item 객체는 영속 상태가 되지 않는다
+    @Transactional //먼저 flush하므로 트랜잭션이 필요하다, 호출한 쪽에 트랜잭션이 있으면 그것을 따른다
+    ItemInsertResult insertAll(Collection<Item> items);
+}
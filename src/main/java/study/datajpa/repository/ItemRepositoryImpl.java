@@ -0,0 +1,137 @@
+package study.datajpa.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ConnectionCallback;
+import study.datajpa.audit.AuditStamps;
+import study.datajpa.entity.Item;
+
+import javax.persistence.EntityManager;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+
+    private static final int IN_CLAUSE_LIMIT = 1000; //DB마다 in 절 파라미터 개수 제한이 있어서 나눠서 조회
+
+    //이미 있는 id면 아무것도 하지 않고 update count 0을 돌려준다
+    private static final String INSERT_IF_ABSENT =
+            "insert into item (id, created_date) select ?, ? from dual" +
+            " where not exists (select 1 from item where id = ?)";
+
+    private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditStamps auditStamps;
+    private final int batchSize;
+
+    public ItemRepositoryImpl(EntityManager em, JdbcTemplate jdbcTemplate, AuditStamps auditStamps,
+                              @Value("${datajpa.import.batch-size:1000}") int batchSize) {
+        this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditStamps = auditStamps;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        List<String> distinct = new ArrayList<>(new HashSet<>(ids));
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < distinct.size(); from += IN_CLAUSE_LIMIT) {
+            List<String> chunk = distinct.subList(from, Math.min(from + IN_CLAUSE_LIMIT, distinct.size()));
+            existing.addAll(em.createQuery("select i.id from Item i where i.id in :ids", String.class)
+                    .setParameter("ids", chunk)
+                    .getResultList());
+        }
+        return existing;
+    }
+
+    @Override
+    public ItemInsertResult insertAll(Collection<Item> items) {
+        em.flush(); //영속성 컨텍스트에 쌓인 insert가 먼저 DB에 반영되어야 중복 판단이 맞다
+
+        //같은 id가 여러번 들어오면 처음 것만 사용
+        Map<String, Item> candidates = new LinkedHashMap<>();
+        for (Item item : items) {
+            candidates.putIfAbsent(item.getId(), item);
+        }
+
+        ItemInsertResult result = new ItemInsertResult();
+        Set<String> existing = findExistingIds(candidates.keySet());
+        List<Item> toInsert = new ArrayList<>();
+        for (Item item : candidates.values()) {
+            if (existing.contains(item.getId())) {
+                result.put(item.getId(), ItemInsertResult.Status.DUPLICATE);
+            } else {
+                toInsert.add(item);
+            }
+        }
+
+        Timestamp now = Timestamp.valueOf(auditStamps.current().getTime()); //save()로 넣은 Item과 같은 감사 시계
+        for (int from = 0; from < toInsert.size(); from += batchSize) {
+            insertChunk(toInsert.subList(from, Math.min(from + batchSize, toInsert.size())), now, result);
+        }
+        return result;
+    }
+
+    private void insertChunk(List<Item> chunk, Timestamp createdDate, ItemInsertResult result) {
+        List<Object[]> args = new ArrayList<>(chunk.size());
+        for (Item item : chunk) {
+            args.add(new Object[]{item.getId(), createdDate, item.getId()});
+        }
+
+        int[] counts;
+        try {
+            counts = inSavepoint(() -> jdbcTemplate.batchUpdate(INSERT_IF_ABSENT, args));
+        } catch (DuplicateKeyException e) {
+            //조회 이후 다른 트랜잭션이 같은 id를 넣은 경우, batch 전 savepoint로 되돌리고 한건씩 다시 시도
+            //실패 후 row별 결과(getUpdateCounts)는 드라이버마다 달라서 쓰지 않는다
+            counts = null;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            int count = counts != null ? counts[i] : insertOne(args.get(i));
+            record(result, chunk.get(i), count);
+        }
+    }
+
+    //실패한 문장이 트랜잭션 전체를 중단시키는 DB(PostgreSQL)도 있으므로 한건마다 savepoint로 감싼다
+    private int insertOne(Object[] args) {
+        try {
+            return inSavepoint(() -> jdbcTemplate.update(INSERT_IF_ABSENT, args));
+        } catch (DuplicateKeyException e) {
+            return Statement.EXECUTE_FAILED;
+        }
+    }
+
+    //insertAll의 트랜잭션 커넥션에 savepoint를 잡고 실패하면 그 지점까지만 되돌린다
+    //HibernateJpaDialect는 NESTED 전파(savepoint)를 지원하지 않아서 JDBC로 직접 잡는다
+    private <T> T inSavepoint(Supplier<T> statement) {
+        return jdbcTemplate.execute((ConnectionCallback<T>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            T result;
+            try {
+                result = statement.get();
+            } catch (RuntimeException e) {
+                connection.rollback(savepoint);
+                throw e;
+            }
+            connection.releaseSavepoint(savepoint);
+            return result;
+        });
+    }
+
+    private static void record(ItemInsertResult result, Item item, int updateCount) {
+        boolean inserted = updateCount > 0 || updateCount == Statement.SUCCESS_NO_INFO;
+        result.put(item.getId(), inserted ? ItemInsertResult.Status.INSERTED : ItemInsertResult.Status.DUPLICATE);
+    }
+}
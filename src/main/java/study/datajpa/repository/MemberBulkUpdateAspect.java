@@ -0,0 +1,24 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import study.datajpa.entity.MemberChangedEvent;
+
+//벌크 연산은 영속성 컨텍스트를 거치지 않아서 엔티티 리스너(@PostUpdate)가 호출되지 않는다
+//대신 bulk* 메소드가 끝나면 변경 이벤트를 직접 발행한다
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class MemberBulkUpdateAspect {
+
+    private final ApplicationEventPublisher publisher;
+
+    @AfterReturning("execution(* study.datajpa.repository.MemberRepository.bulk*(..))" +
+            " || execution(* study.datajpa.repository.MemberJpaRepository.bulk*(..))")
+    public void afterBulkUpdate() {
+        publisher.publishEvent(MemberChangedEvent.bulkUpdated());
+    }
+}
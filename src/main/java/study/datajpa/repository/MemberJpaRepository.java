@@ -1,6 +1,11 @@
 package study.datajpa.repository;
 
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
 
 import javax.persistence.EntityManager;
@@ -8,12 +13,16 @@ import javax.persistence.PersistenceContext;
 import java.util.List;
 import java.util.Optional;
 
+//조회 메서드는 메서드 단위로 읽기 전용 트랜잭션 (MemberRepository는 인터페이스 단위)
 @Repository
+@RequiredArgsConstructor
 public class MemberJpaRepository {
 
     @PersistenceContext
     private EntityManager em;
 
+    private final PageCounter pageCounter;
+
     public Member save(Member member) {
         em.persist(member);
         return member;
@@ -23,25 +32,30 @@ public class MemberJpaRepository {
         em.remove(member);
     }
 
+    @Transactional(readOnly = true)
     public Member find(Long id) {
         return em.find(Member.class, id);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Member> findById(Long id) {
         Member member = em.find(Member.class, id);
         return Optional.ofNullable(member);
     }
 
+    @Transactional(readOnly = true)
     public long count() {
         return em.createQuery("select count(m) from Member m", Long.class)
                 .getSingleResult();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findAll() {
         return em.createQuery("select m from Member m", Member.class)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsernameAndAgeGreaterThan(String username, int age) {
         return em.createQuery("select m from Member m where m.username = :username and m.age > :age")
                 .setParameter("username", username)
@@ -49,12 +63,14 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByUsername(String username) {
         return em.createNamedQuery("Member.findByUsername", Member.class) //@NamedQuery
                 .setParameter("username", username)
                 .getResultList();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> findByPage(int age, int offset, int limit) {
         return em.createQuery("select m from Member m where m.age = :age order by m.username desc")
                 .setParameter("age", age)
@@ -63,15 +79,47 @@ public class MemberJpaRepository {
                 .getResultList();
     }
 
+    //findByPage의 keyset 버전: 이전 페이지의 마지막 (username, id) 이후부터 limit개 조회
+    @Transactional(readOnly = true)
+    public List<Member> findByPageAfter(int age, String lastUsername, Long lastId, int limit) {
+        return em.createQuery("select m from Member m" +
+                " where m.age = :age" +
+                " and m.username <= :username and (m.username < :username or m.id < :id)" + //인덱스(age, username) 범위로 읽는다
+                " order by m.username desc, m.id desc", Member.class)
+                .setParameter("age", age)
+                .setParameter("username", lastUsername)
+                .setParameter("id", lastId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Transactional(readOnly = true)
     public long totalCount(int age) {
         return em.createQuery("select count(m) from Member m where m.age = :age", Long.class)
                 .setParameter("age", age)
                 .getSingleResult();
     }
 
+    //findByPage + totalCount를 합친 버전, 마지막 페이지면 count 쿼리를 생략하고 countStrategy에 따라 캐시/추정치를 사용
+    @Transactional(readOnly = true)
+    public Page<Member> findPageByAge(int age, Pageable pageable, CountStrategy countStrategy) {
+        List<Member> content = em.createQuery("select m from Member m where m.age = :age order by m.username desc", Member.class)
+                .setParameter("age", age)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return pageCounter.toPage(new SliceImpl<>(content, pageable, hasNext), countStrategy,
+                CountQuery.of("Member.totalCount:" + age, () -> totalCount(age)));
+    }
+
     public int bulkAgePlus(int age) {
         return em.createQuery(
-                "update Member m set m.age = m.age + 1" +
+                "update versioned Member m set m.age = m.age + 1" +
                 " where m.age >= :age")
                 .setParameter("age", age)
                 .executeUpdate();
@@ -1,8 +1,11 @@
 package study.datajpa.repository;
 
+import study.datajpa.projection.GeneratedProjection;
+
+@GeneratedProjection //프록시 대신 생성된 클래스, select 별칭은 id, username, teamName 순서
 public interface MemberProjection {
 
     Long getId();
     String getUsername();
-    String getTeamname();
+    String getTeamName();
 }
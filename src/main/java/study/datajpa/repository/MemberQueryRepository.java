@@ -1,16 +1,137 @@
 package study.datajpa.repository;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberScreen;
+import study.datajpa.dto.TeamSummaryDto;
 
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Repository
-@RequiredArgsConstructor
 public class MemberQueryRepository {
 
     private final EntityManager em;
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate readOnly;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timeouts;
+    private final Duration timeout;
 
     //복잡한 화면을 구성하기 위한 쿼리들은 항상 custom repository로 만들 필요가 없다.
     //새로운 클래스로 분리하고 스프링 빈으로 등록하여 사용해도 된다.
+
+    //서로 관계없는 쿼리는 async로 동시에 실행한다, 화면 응답 시간이 쿼리 시간의 합이 아니라 가장 느린 쿼리 시간이 된다
+    //쿼리마다 커넥션이 하나씩 필요하므로 스레드 수는 커넥션 풀 크기에서 요청 스레드(OSIV)와 쓰기용 몫을 남긴 만큼, 큐도 제한한다
+    public MemberQueryRepository(EntityManager em, MemberRepository memberRepository,
+                                 PlatformTransactionManager transactionManager, MeterRegistry registry,
+                                 @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                                 @Value("${datajpa.query.reserved-connections:2}") int reservedConnections,
+                                 @Value("${datajpa.query.timeout:5s}") Duration timeout) {
+        this.em = em;
+        this.memberRepository = memberRepository;
+        this.timeout = timeout;
+
+        //쿼리마다 별도 읽기 전용 트랜잭션(replica가 있으면 replica), 트랜잭션 timeout은 JDBC query timeout으로도 걸린다
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setTimeout((int) Math.max(1, timeout.getSeconds()));
+
+        int threads = Math.max(1, poolSize - reservedConnections);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 16), new CustomizableThreadFactory("member-query-"));
+        this.timeouts = new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("member-query-timeout-"));
+        ((ScheduledThreadPoolExecutor) this.timeouts).setRemoveOnCancelPolicy(true);
+        ExecutorServiceMetrics.monitor(registry, executor, "member-query");
+    }
+
+    //회원 페이지, 팀 요약, 회원/팀 수를 동시에 조회해서 합친다, 하나라도 실패하거나 timeout이면 나머지는 취소
+    public CompletableFuture<MemberScreen> memberScreen(Pageable pageable) {
+        CompletableFuture<Slice<MemberDto>> members = async(em -> memberRepository.findMemberDtoSlice(pageable));
+        CompletableFuture<List<TeamSummaryDto>> teams = async(this::teamSummaries);
+        CompletableFuture<Long> memberCount = async(em -> em.createQuery("select count(m) from Member m", Long.class)
+                .getSingleResult());
+        CompletableFuture<Long> teamCount = async(em -> em.createQuery("select count(t) from Team t", Long.class)
+                .getSingleResult());
+
+        CompletableFuture<MemberScreen> screen = CompletableFuture.allOf(members, teams, memberCount, teamCount)
+                .thenApply(done -> new MemberScreen(members.join(), teams.join(), memberCount.join(), teamCount.join()));
+        screen.whenComplete((result, failure) -> {
+            if (failure != null) {
+                members.cancel(true);
+                teams.cancel(true);
+                memberCount.cancel(true);
+                teamCount.cancel(true);
+            }
+        });
+        return screen;
+    }
+
+    private List<TeamSummaryDto> teamSummaries(EntityManager em) {
+        return em.createQuery("select new study.datajpa.dto.TeamSummaryDto(t.id, t.name, count(m))" +
+                " from Team t left join t.members m" +
+                " group by t.id, t.name" +
+                " order by t.name", TeamSummaryDto.class)
+                .getResultList();
+    }
+
+    public <T> CompletableFuture<T> async(Function<EntityManager, T> query) {
+        return async(query, timeout);
+    }
+
+    //query는 풀 스레드의 읽기 전용 트랜잭션 안에서 실행된다 (em은 그 트랜잭션의 영속성 컨텍스트)
+    //timeout이 지나거나 반환된 future를 cancel하면 실행 중인 스레드를 interrupt한다, 풀과 큐가 가득 차면 RejectedExecutionException으로 완료
+    public <T> CompletableFuture<T> async(Function<EntityManager, T> query, Duration timeout) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    result.complete(readOnly.execute(status -> query.apply(em)));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException rejected) {
+            result.completeExceptionally(rejected);
+            return result;
+        }
+
+        ScheduledFuture<?> timer = timeouts.schedule(
+                () -> result.completeExceptionally(new TimeoutException("query timed out after " + timeout)),
+                timeout.toMillis(), TimeUnit.MILLISECONDS);
+        result.whenComplete((value, failure) -> {
+            timer.cancel(false);
+            if (failure != null) {
+                task.cancel(true); //이미 끝났으면 아무 일도 없다
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        timeouts.shutdownNow();
+    }
 }
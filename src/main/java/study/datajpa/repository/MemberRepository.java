@@ -2,10 +2,14 @@ package study.datajpa.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.MemberListFingerprint;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberListVersion;
 
 import javax.persistence.LockModeType;
 import javax.persistence.QueryHint;
@@ -13,6 +17,9 @@ import java.util.List;
 import java.util.Optional;
 
 //@Repository 생략 가능
+//조회 메서드는 읽기 전용 트랜잭션: 스냅샷/더티 체킹 없음, FlushMode.MANUAL, replica가 설정되어 있으면 replica에서 실행
+//save/delete 등은 SimpleJpaRepository의 @Transactional을 따르고, 쓰기나 락이 필요한 쿼리 메서드는 @Transactional을 따로 붙인다
+@Transactional(readOnly = true)
 public interface MemberRepository extends JpaRepository<Member, Long> , MemberRepositoryCustom {
 
     //https://docs.spring.io/spring-data/jpa/docs/current/reference/html/#jpa.query-methods.query-creation
@@ -23,6 +30,9 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
     List<Member> findByUsernameAndAgeGreaterThan(String username, int age); //파라미터가 많아지면 이름이 너무 길어짐
 
     //@Query(name = "Member.findByUsername") //@NamedQuery의 name, 관례를 따르면 생략 가능
+    @QueryHints(value = {
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"), //쿼리 캐시, member 테이블이 바뀌면 자동 무효화
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "member-by-username")})
     List<Member> findByUsername(@Param("username") String username); //@Query 파라미터 넣어줌
 
     @Query("select m from Member m where m.username = :username and m.age = :age") //이 방식이 장점이 많음, 이름이 없는 @NamedQuery(정적쿼리)와 같음, 문법 오류 잡을 수 있다, 권장!
@@ -38,17 +48,26 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
     List<Member> findByNames(@Param("names") List<String> names);
 
     List<Member> findListByUsername(String username); //컬렉션
+    @QueryHints(value = {
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "member-by-username")})
     Member findMemberByUsername(String username); //단건
     Optional<Member> findOptionalByUsername(String username); //단건 Optional
 
     // @Query(value = "select m from Member m left join m.team t", countQuery = "select count(m.username) from Member m") //쿼리가 복잡해지면 카운트 쿼리도 복잡해짐, 쿼리 분리해주기
-    @Query(value = "select m from Member m")
-    Page<Member> findByAge(int age, Pageable pageable); //Pageable은 인터페이스. 실제 사용할 때는 해당 인터페이스를 구현한 PageRequest를 사용함
+    @Query(value = "select m from Member m where m.age = :age") //age 조건 + username 정렬은 member_age_username_idx
+    Page<Member> findByAge(@Param("age") int age, Pageable pageable); //Pageable은 인터페이스. 실제 사용할 때는 해당 인터페이스를 구현한 PageRequest를 사용함
     //Slice<Member> findByAge(int age, Pageable pageable); //Pageable은 인터페이스. 실제 사용할 때는 해당 인터페이스를 구현한 PageRequest를 사용함
 
+    //count 쿼리 없이 size + 1개를 조회하는 Slice 버전, PageCounter로 count 전략을 골라서 Page로 바꿀 수 있다
+    Slice<Member> findSliceBy(Pageable pageable);
+    Slice<Member> findSliceByAge(int age, Pageable pageable);
+    long countByAge(int age);
+
+    @Transactional
     @Modifying(clearAutomatically = true) //꼭 Modifying 붙여줘야 함!, clear true로 설정하면 벌크 연산 후 자동으로 clear해줌!!
-    @Query("update Member m set m.age = m.age + 1 where m.age >= :age")
-    int bulkAgePlus(@Param("age") int age);
+    @Query("update versioned Member m set m.age = m.age + 1 where m.age >= :age") //versioned: @Version도 올려서 읽어둔 엔티티로 덮어쓰지 못하게 한다
+    int bulkAgePlus(@Param("age") int age); //대상이 많으면 MemberBulkUpdateService.bulkAgePlus (청크마다 커밋, 바뀐 엔티티만 캐시에서 제거)
 
     @Query("select m from Member m left join fetch m.team") //Member를 조회할 때 연관된 team을 함께 가져옴, team의 모든 값도 채움
     List<Member> findMemberFetchJoin();
@@ -67,17 +86,30 @@ public interface MemberRepository extends JpaRepository<Member, Long> , MemberRe
     @QueryHints(value = @QueryHint(name = "org.hibernate.readOnly", value = "true"))
     Member findReadOnlyByUsername(String username);
 
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional //락은 primary에서
+    @Lock(LockModeType.PESSIMISTIC_WRITE) //트랜잭션이 끝날 때까지 row 락을 잡는다, 여러 작업자가 나눠 가져가는 용도면 claimNext
     List<Member> findLockByUsername(String username);
 
     List<UsernameOnly> findProjectionsByUsername(@Param("username") String username);
 
+    <T> List<T> findProjectionsByAgeGreaterThanEqual(int age, Class<T> type); //동적 프로젝션, UsernameOnly(튜플) 또는 UsernameOnlyDto(생성자)
+
     @Query(value = "select * from member where username = ?", nativeQuery = true) //네이티브 쿼리는 사용하지 않는게 좋다.
     Member findByNativeQuery(String username);
 
     @Query(value = "select m.member_id as id, m.username, t.name as teamName " +
-            "from member m left join team t",
+            "from member m left join team t on t.team_id = m.team_id",
             countQuery = "select count(*) from member",
             nativeQuery = true)
     Page<MemberProjection> findByNativeProjection(Pageable pageable); //Projections 활용하여 딱 매칭해서 넣을 수 있다. 페이징도 가능
+
+    @Query(value = "select m.member_id as id, m.username, t.name as teamName " +
+            "from member m left join team t on t.team_id = m.team_id",
+            nativeQuery = true)
+    Slice<MemberProjection> findSliceByNativeProjection(Pageable pageable);
+
+    //회원 목록 응답의 ETag/Last-Modified, 기본키로 row 하나만 읽는다 (MemberController.list)
+    @Query("select new study.datajpa.dto.MemberListFingerprint(v.version, v.lastModifiedDate)" +
+            " from MemberListVersion v where v.id = " + MemberListVersion.ID + "L")
+    MemberListFingerprint findListFingerprint();
 }
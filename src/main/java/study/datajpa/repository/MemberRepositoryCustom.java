@@ -1,9 +1,31 @@
 package study.datajpa.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<Member> findMemberCustom();
+
+    Slice<Member> findByKeyset(MemberCursor cursor, int size); //offset 대신 마지막 (정렬키, id) 이후부터 조회, count 쿼리 없음
+
+    Slice<MemberDto> findMemberDtoSlice(Pageable pageable); //id, username, 팀 이름만 조인 한번으로 조회, 정렬은 id, username, age, teamName만 가능
+
+    Stream<MemberDto> streamMemberDto(int fetchSize); //트랜잭션 안에서 사용하고 반드시 close, 엔티티를 만들지 않으므로 영속성 컨텍스트가 커지지 않음
+
+    //아무도 가져가지 않은(또는 임대가 만료된) 회원을 id 순서로 최대 n명 가져간다, 여러 작업자가 동시에 호출해도 겹치지 않는다
+    //claim은 항상 새 트랜잭션으로 바로 커밋하므로 반환된 엔티티는 준영속 상태, 임대 시간은 datajpa.claim.lease
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    List<Member> claimNext(int n);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    List<Member> claimNext(int n, Duration lease);
 }
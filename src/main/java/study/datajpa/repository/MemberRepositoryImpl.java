@@ -1,18 +1,245 @@
 package study.datajpa.repository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.hibernate.jpa.QueryHints;
+import study.datajpa.audit.FastIds;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberChangedEvent;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 @RequiredArgsConstructor
 public class MemberRepositoryImpl implements MemberRepositoryCustom { //Impl 이름 규칙 지키기
+
+    //요청 파라미터의 sort 속성 -> JPQL 경로, 여기 없는 속성으로는 정렬할 수 없다
+    private static final Map<String, String> DTO_SORT_PATHS = new LinkedHashMap<>();
+
+    static {
+        DTO_SORT_PATHS.put("id", "m.id");
+        DTO_SORT_PATHS.put("username", "m.username");
+        DTO_SORT_PATHS.put("age", "m.age");
+        DTO_SORT_PATHS.put("teamName", "t.name");
+    }
+
     private final EntityManager em;
+    private final MeterRegistry registry;
+    private final ApplicationEventPublisher publisher;
+
+    @Value("${datajpa.claim.lease:5m}")
+    private Duration claimLease;
 
     @Override
     public List<Member> findMemberCustom() {
         return em.createQuery("select m from Member m")
                 .getResultList();
     }
+
+    @Override
+    public Slice<Member> findByKeyset(MemberCursor cursor, int size) {
+        TypedQuery<Member> query;
+        if (cursor.getKey() == MemberCursor.Key.USERNAME) {
+            //username이 null인 회원은 맨 앞에 id 순으로 둔다
+            if (cursor.isFirst()) {
+                query = em.createQuery("select m from Member m order by m.username nulls first, m.id", Member.class);
+            } else if (cursor.getUsername() == null) {
+                query = em.createQuery("select m from Member m" +
+                        " where (m.username is null and m.id > :id) or m.username is not null" +
+                        " order by m.username nulls first, m.id", Member.class)
+                        .setParameter("id", cursor.getId());
+            } else {
+                query = em.createQuery("select m from Member m" +
+                        " where m.username >= :username and (m.username > :username or m.id > :id)" + //or만 있으면 인덱스 범위로 못 읽는다, null은 비교에서 빠진다
+                        " order by m.username nulls first, m.id", Member.class)
+                        .setParameter("username", cursor.getUsername())
+                        .setParameter("id", cursor.getId());
+            }
+        } else {
+            query = cursor.isFirst()
+                    ? em.createQuery("select m from Member m order by m.age, m.id", Member.class)
+                    : em.createQuery("select m from Member m" +
+                            " where m.age >= :age and (m.age > :age or m.id > :id)" +
+                            " order by m.age, m.id", Member.class)
+                    .setParameter("age", cursor.getAge())
+                    .setParameter("id", cursor.getId());
+        }
+
+        //size + 1개를 조회해서 다음 페이지 존재 여부만 판단한다 (offset은 항상 0)
+        List<Member> content = query
+                .setMaxResults(size + 1)
+                .getResultList();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public Slice<MemberDto> findMemberDtoSlice(Pageable pageable) {
+        //엔티티 대신 생성자 프로젝션으로 바로 DTO를 만든다, 영속성 컨텍스트/스냅샷/프록시가 생기지 않는다
+        //팀이 없는 회원도 나오도록 left join
+        String jpql = "select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                " from Member m left join m.team t" +
+                orderBy(pageable.getSort());
+        TypedQuery<MemberDto> query = em.createQuery(jpql, MemberDto.class);
+        if (pageable.isUnpaged()) {
+            return new SliceImpl<>(query.getResultList(), pageable, false);
+        }
+
+        //count 쿼리 대신 size + 1개를 조회해서 다음 페이지 여부를 판단한다, 전체 개수는 PageCounter에서
+        List<MemberDto> content = query
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    //정렬 조건이 같은 row끼리 페이지마다 순서가 바뀌지 않도록 마지막에 항상 id를 붙인다
+    private static String orderBy(Sort sort) {
+        StringBuilder orderBy = new StringBuilder(" order by ");
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            String path = DTO_SORT_PATHS.get(order.getProperty());
+            if (path == null) {
+                throw new IllegalArgumentException("cannot sort members by " + order.getProperty()
+                        + ", allowed: " + DTO_SORT_PATHS.keySet());
+            }
+            hasId |= path.equals("m.id");
+            orderBy.append(path).append(order.isAscending() ? " asc" : " desc").append(", ");
+        }
+        if (!hasId) {
+            return orderBy.append("m.id").toString();
+        }
+        return orderBy.substring(0, orderBy.length() - 2);
+    }
+
+    @Override
+    public Stream<MemberDto> streamMemberDto(int fetchSize) {
+        //DTO로 바로 조회하면 엔티티, 스냅샷이 만들어지지 않는다
+        //getResultStream()은 하이버네이트 ScrollableResults(FORWARD_ONLY) 위에서 동작하고 fetchSize만큼씩 JDBC에서 가져온다
+        return em.createQuery("select new study.datajpa.dto.MemberDto(m.id, m.username, t.name)" +
+                " from Member m left join m.team t" +
+                " order by m.id", MemberDto.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Member> claimNext(int n) {
+        return claimNext(n, claimLease);
+    }
+
+    @Override
+    public List<Member> claimNext(int n, Duration lease) {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+
+        //SKIP LOCKED를 지원하는 DB면 다른 작업자가 잡고 있는 후보를 기다리지 않고 건너뛴다
+        //H2는 지원하지 않으므로 락 없이 후보를 고르고, 아래 조건부 update로 이미 가져간 row를 걸러낸다
+        //동시에 호출한 작업자들은 같은 후보를 고르므로 모두 빼앗기면 다시 고른다, 빈 결과는 가져갈 회원이 없다는 뜻이다
+        List<Member> claimed = Collections.emptyList();
+        int candidates = 0;
+        while (claimed.isEmpty()) {
+            List<Long> ids = candidates(n, now);
+            if (ids.isEmpty()) {
+                break;
+            }
+            candidates += ids.size();
+
+            String token = FastIds.uuid().toString();
+            //조건부 update는 먼저 커밋한 작업자의 row를 다시 평가해서 건너뛴다, 같은 row를 두 작업자가 가져가지 않는다
+            //JPQL 벌크 연산은 Member 2차 캐시 region 전체를 비우므로 JDBC로 실행하고 가져간 id만 비운다
+            em.unwrap(Session.class).doWork(connection -> claim(connection, ids, token, now.plus(lease), now));
+            for (Long id : ids) {
+                em.getEntityManagerFactory().getCache().evict(Member.class, id);
+            }
+            claimed = em.createQuery(
+                    "select m from Member m where m.id in :ids and m.claimedBy = :token order by m.id", Member.class)
+                    .setParameter("ids", ids)
+                    .setParameter("token", token)
+                    .getResultList();
+        }
+        //JDBC update는 @PostUpdate가 없으므로 직접 발행한다, 스냅샷 캐시(version)와 회원 목록 ETag가 바뀐다
+        for (Member member : claimed) {
+            publisher.publishEvent(MemberChangedEvent.of(MemberChangedEvent.Type.UPDATED, member));
+        }
+
+        Timer.builder("datajpa.lock.claim")
+                .description("Time spent claiming members with claimNext")
+                .register(registry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        registry.counter("datajpa.lock.claim.members").increment(claimed.size());
+        registry.counter("datajpa.lock.claim.conflicts").increment(candidates - claimed.size()); //다른 작업자가 먼저 가져간 후보
+        return claimed;
+    }
+
+    private List<Long> candidates(int n, LocalDateTime now) {
+        TypedQuery<Long> candidates = em.createQuery(
+                "select m.id from Member m" +
+                " where m.claimedUntil is null or m.claimedUntil < :now" +
+                " order by m.id", Long.class)
+                .setParameter("now", now)
+                .setMaxResults(n);
+        if (dialect().supportsSkipLocked()) {
+            candidates.setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED);
+        }
+        return candidates.getResultList();
+    }
+
+    private static void claim(Connection connection, List<Long> ids, String token,
+                              LocalDateTime until, LocalDateTime now) throws SQLException {
+        String in = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        try (PreparedStatement update = connection.prepareStatement(
+                "update member set claimed_by = ?, claimed_until = ?, version = version + 1" +
+                " where member_id in (" + in + ") and (claimed_until is null or claimed_until < ?)")) {
+            int i = 1;
+            update.setString(i++, token);
+            update.setTimestamp(i++, Timestamp.valueOf(until));
+            for (Long id : ids) {
+                update.setLong(i++, id);
+            }
+            update.setTimestamp(i, Timestamp.valueOf(now));
+            update.executeUpdate();
+        }
+    }
+
+    private Dialect dialect() {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
 }
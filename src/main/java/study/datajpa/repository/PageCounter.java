@@ -0,0 +1,159 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.entity.MemberChangedEvent;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Slice(size + 1 조회)를 Page로 바꿔주면서 count 쿼리를 전략에 따라 생략하거나 캐시한다
+@Component
+public class PageCounter {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final long cacheTtlNanos;
+    private final long estimateThreshold;
+
+    private final Map<String, CachedCount> cache = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong(); //무효화될 때마다 증가, 그 전에 시작한 조회 결과는 캐시하지 않는다
+
+    private final Counter executed;
+    private final Counter skipped;
+    private final Counter cached;
+    private final Counter estimated;
+
+    public PageCounter(@Value("${datajpa.count.cache-ttl:5s}") Duration cacheTtl,
+                       @Value("${datajpa.count.estimate-threshold:100000}") long estimateThreshold,
+                       MeterRegistry registry) {
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.estimateThreshold = estimateThreshold;
+        this.executed = counter(registry, "executed");
+        this.skipped = counter(registry, "skipped");
+        this.cached = counter(registry, "cached");
+        this.estimated = counter(registry, "estimated");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("datajpa.count.queries")
+                .description("Count queries executed or avoided for paged reads")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    public <T> Page<T> toPage(Slice<T> slice, CountStrategy strategy, CountQuery countQuery) {
+        Pageable pageable = slice.getPageable();
+        List<T> content = slice.getContent();
+
+        //다음 페이지가 없으면 전체 개수 = offset + 현재 페이지 개수 (offset을 넘어선 빈 페이지는 제외)
+        if (!slice.hasNext() && (!content.isEmpty() || pageable.isUnpaged() || pageable.getOffset() == 0)) {
+            skipped.increment();
+            long offset = pageable.isPaged() ? pageable.getOffset() : 0;
+            return new PageImpl<>(content, pageable, offset + content.size());
+        }
+        return new PageImpl<>(content, pageable, count(strategy, countQuery));
+    }
+
+    public long count(CountStrategy strategy, CountQuery countQuery) {
+        switch (strategy) {
+            case ESTIMATED:
+                if (countQuery.getTable() != null) {
+                    Long estimate = estimate(countQuery.getTable());
+                    if (estimate != null && estimate >= estimateThreshold) {
+                        estimated.increment();
+                        return estimate;
+                    }
+                }
+                return cachedCount(countQuery); //추정할 수 없거나 작은 테이블이면 정확한 값을 캐시해서 사용
+            case CACHED:
+                return cachedCount(countQuery);
+            default:
+                executed.increment();
+                return countQuery.getExact().getAsLong();
+        }
+    }
+
+    private long cachedCount(CountQuery countQuery) {
+        long now = System.nanoTime();
+        CachedCount hit = cache.get(countQuery.getKey());
+        if (hit != null && now - hit.loadedAt < cacheTtlNanos) {
+            cached.increment();
+            return hit.value;
+        }
+
+        long startGeneration = generation.get();
+        executed.increment();
+        long value = countQuery.getExact().getAsLong();
+        if (generation.get() == startGeneration) {
+            cache.put(countQuery.getKey(), new CachedCount(value, now));
+        }
+        return value;
+    }
+
+    //H2는 INFORMATION_SCHEMA.TABLES에 행 수 추정치를 가지고 있다, 지원하지 않으면 null
+    private Long estimate(String table) {
+        try {
+            Number estimate = (Number) em.createNativeQuery(
+                    "select row_count_estimate from information_schema.tables where upper(table_name) = upper(?)")
+                    .setParameter(1, table)
+                    .getSingleResult();
+            return estimate.longValue();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @EventListener
+    public void onMemberChanged(MemberChangedEvent event) {
+        invalidate();
+        invalidateAfterCompletion();
+    }
+
+    //커밋 전에 다른 트랜잭션이 이전 값을 다시 캐시했을 수 있으므로 트랜잭션이 끝난 후 한번 더 비운다
+    //대량 저장 시 이벤트마다 synchronization이 쌓이지 않도록 트랜잭션당 한번만 등록한다
+    private void invalidateAfterCompletion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PageCounter.this);
+                invalidate();
+            }
+        });
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private static class CachedCount {
+        private final long value;
+        private final long loadedAt;
+
+        private CachedCount(long value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
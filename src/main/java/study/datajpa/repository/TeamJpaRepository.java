@@ -1,6 +1,7 @@
 package study.datajpa.repository;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
 
@@ -24,16 +25,19 @@ public class TeamJpaRepository {
         em.remove(team);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Team> findById(Long id) {
         Team team = em.find(Team.class, id);
         return Optional.ofNullable(team);
     }
 
+    @Transactional(readOnly = true)
     public long count() {
         return em.createQuery("select count(t) from Team t", Long.class)
                 .getSingleResult();
     }
 
+    @Transactional(readOnly = true)
     public List<Team> findAll() {
         return em.createQuery("select t from Team t", Team.class)
                 .getResultList();
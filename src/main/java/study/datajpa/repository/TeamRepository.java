@@ -1,7 +1,23 @@
 package study.datajpa.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import study.datajpa.entity.Team;
 
-public interface TeamRepository extends JpaRepository<Team, Long> {
+import java.util.Optional;
+
+public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
+
+    //team 테이블만 읽는다, 영속성 컨텍스트의 Team.memberCount는 읽어온 시점의 값이므로 최신 값은 이것으로
+    @Query("select t.memberCount from Team t where t.id = :id")
+    Optional<Integer> findMemberCount(@Param("id") Long id);
+
+    //이벤트 없이 회원을 바꾸는 벌크 연산 뒤에 회원 테이블로 다시 센다 (나이 분포까지는 TeamStatisticsService.reconcile)
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Team t set t.memberCount = (select count(m) from Member m where m.team = t)")
+    int recountMembers();
 }
@@ -0,0 +1,10 @@
+package study.datajpa.repository;
+
+import study.datajpa.dto.TeamStatistics;
+
+public interface TeamRepositoryCustom {
+
+    //회원 수, 나이 합/평균/최소/최대, 나이 분포를 team_age_count의 팀 row만 읽어서 만든다, 팀 크기와 상관없이 나이 종류 수만큼만 읽는다
+    //회원이 없는 팀, 없는 팀은 memberCount 0
+    TeamStatistics findStatistics(Long teamId);
+}
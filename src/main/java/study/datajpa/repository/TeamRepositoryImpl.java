@@ -0,0 +1,23 @@
+package study.datajpa.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import study.datajpa.dto.TeamStatistics;
+import study.datajpa.entity.TeamAgeCount;
+
+import javax.persistence.EntityManager;
+
+@RequiredArgsConstructor
+public class TeamRepositoryImpl implements TeamRepositoryCustom {
+
+    private final EntityManager em;
+
+    @Override
+    public TeamStatistics findStatistics(Long teamId) {
+        return TeamStatistics.of(teamId, em.createQuery(
+                "select c from TeamAgeCount c where c.teamId = :teamId and c.memberCount > 0 order by c.age", TeamAgeCount.class)
+                .setParameter("teamId", teamId)
+                .setHint(QueryHints.HINT_READONLY, true) //스냅샷을 만들지 않는다
+                .getResultList());
+    }
+}
@@ -1,7 +1,9 @@
 package study.datajpa.repository;
 
 import org.springframework.beans.factory.annotation.Value;
+import study.datajpa.projection.GeneratedProjection;
 
+@GeneratedProjection //오픈 프로젝션(@Value)으로 바꾸면 이 애너테이션은 빼야 한다
 public interface UsernameOnly {
 
     //@Value("#{target.username + ' ' + target.age}") 오픈 프로젝션, 엔티티 전체 가져와서 뽑아 쓰는 것
@@ -0,0 +1,215 @@
+package study.datajpa.search;
+
+import study.datajpa.dto.UsernameMatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+//username 검색 인덱스, 대소문자를 구분하지 않는다
+//앞부분 일치: (소문자 username, id) 순서로 정렬된 트리에서 prefix 이상인 첫 항목부터 읽는다
+//중간 포함: 3글자(trigram)마다 그 글자를 가진 id 목록(정렬된 long[]), 검색어의 trigram 중 목록이 가장 짧은 것만 훑고 나머지 목록은 이진 탐색으로 거른다
+//스레드 안전하지 않다, UsernameSearch가 락을 잡고 쓴다
+public class UsernameIndex {
+
+    static final int GRAM = 3; //이보다 짧은 검색어는 앞부분 일치만
+
+    //메모리 추정치 (64bit, compressed oops 기준 대략)
+    private static final int ENTRY_BYTES = 24 + 40 + 32 + 16; //Entry + TreeSet 노드 + HashMap 노드 + Long
+    private static final int STRING_BYTES = 24 + 16; //String + char[] 헤더
+    private static final int POSTINGS_BYTES = 24 + 16 + 32 + 16; //Postings + long[] 헤더 + HashMap 노드 + Long
+
+    private final Map<Long, Entry> byId = new HashMap<>();
+    private final NavigableSet<Entry> sorted = new TreeSet<>();
+    private final Map<Long, Postings> grams = new HashMap<>();
+    private long strings;
+    private long chars;
+
+    //같은 id가 있으면 바꾼다, 이름이 같으면 아무것도 하지 않는다
+    public void put(long id, String username) {
+        Entry before = byId.get(id);
+        if (before != null) {
+            if (before.username.equals(username)) {
+                return;
+            }
+            remove(id);
+        }
+        Entry entry = new Entry(id, username);
+        byId.put(id, entry);
+        sorted.add(entry);
+        strings += entry.key == entry.username ? 1 : 2;
+        chars += entry.key == entry.username ? entry.key.length() : entry.key.length() + entry.username.length();
+        for (long gram : grams(entry.key)) {
+            grams.computeIfAbsent(gram, key -> new Postings()).add(id);
+        }
+    }
+
+    public void remove(long id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+        sorted.remove(entry);
+        strings -= entry.key == entry.username ? 1 : 2;
+        chars -= entry.key == entry.username ? entry.key.length() : entry.key.length() + entry.username.length();
+        for (long gram : grams(entry.key)) {
+            Postings postings = grams.get(gram);
+            postings.remove(id);
+            if (postings.size == 0) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    //앞부분이 일치하는 회원(username 순서) 다음에 중간에 포함하는 회원(id 순서), 최대 limit명
+    public List<UsernameMatch> search(String query, int limit) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<UsernameMatch> matches = new ArrayList<>(Math.min(limit, 64));
+        if (q.isEmpty() || limit <= 0) {
+            return matches;
+        }
+
+        for (Entry entry : sorted.tailSet(new Entry(Long.MIN_VALUE, q, q), true)) {
+            if (matches.size() == limit || !entry.key.startsWith(q)) {
+                break;
+            }
+            matches.add(new UsernameMatch(entry.id, entry.username, true));
+        }
+        if (matches.size() == limit || q.length() < GRAM) {
+            return matches;
+        }
+
+        long[] queryGrams = grams(q);
+        Postings[] postings = new Postings[queryGrams.length];
+        for (int i = 0; i < queryGrams.length; i++) {
+            postings[i] = grams.get(queryGrams[i]);
+            if (postings[i] == null) {
+                return matches; //없는 trigram
+            }
+        }
+        Arrays.sort(postings, (a, b) -> Integer.compare(a.size, b.size));
+
+        Postings shortest = postings[0];
+        candidates:
+        for (int i = 0; i < shortest.size && matches.size() < limit; i++) {
+            long id = shortest.ids[i];
+            for (int p = 1; p < postings.length; p++) {
+                if (!postings[p].contains(id)) {
+                    continue candidates;
+                }
+            }
+            Entry entry = byId.get(id);
+            if (!entry.key.startsWith(q) && entry.key.contains(q)) { //trigram이 모두 있어도 순서가 다를 수 있다
+                matches.add(new UsernameMatch(id, entry.username, false));
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public int gramCount() {
+        return grams.size();
+    }
+
+    //대략적인 힙 사용량, 목록 배열의 남는 칸까지 센다
+    public long estimatedBytes() {
+        long bytes = (long) byId.size() * ENTRY_BYTES + strings * STRING_BYTES + 2 * chars;
+        for (Postings postings : grams.values()) {
+            bytes += POSTINGS_BYTES + 8L * postings.ids.length;
+        }
+        return bytes;
+    }
+
+    //중복 없이, 이름 하나에 같은 trigram이 여러번 있어도 id는 목록에 한번만
+    private static long[] grams(String key) {
+        if (key.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[key.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static class Entry implements Comparable<Entry> {
+
+        private final long id;
+        private final String key; //소문자
+        private final String username;
+
+        private Entry(long id, String username) {
+            this(id, username.toLowerCase(Locale.ROOT), username);
+        }
+
+        private Entry(long id, String key, String username) {
+            this.id = id;
+            this.key = key.equals(username) ? username : key; //이미 소문자면 같은 String을 쓴다
+            this.username = username;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int compare = key.compareTo(other.key);
+            return compare != 0 ? compare : Long.compare(id, other.id);
+        }
+    }
+
+    //정렬된 id 목록, 회원 id는 시퀀스라서 새 회원은 대부분 끝에 붙는다
+    private static class Postings {
+
+        private long[] ids = new long[2];
+        private int size;
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        private void insert(int index, long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+                size--;
+                if (size < ids.length / 4) {
+                    ids = Arrays.copyOf(ids, Math.max(2, size * 2)); //많이 지워지면 줄인다
+                }
+            }
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+}
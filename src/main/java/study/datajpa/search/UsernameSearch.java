@@ -0,0 +1,144 @@
+package study.datajpa.search;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.MemberDto;
+import study.datajpa.dto.UsernameMatch;
+import study.datajpa.entity.MemberChangedEvent;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+//회원 username 검색(자동완성), like '%x%' 대신 메모리의 UsernameIndex에서 찾는다 (/members/search)
+//웹 서버가 요청을 받기 전(ContextRefreshedEvent)에 회원 전체를 스트리밍으로 읽어서 만들고, 이후에는 커밋된 MemberChangedEvent로 고친다
+//벌크 연산은 username을 바꾸지 않으므로 무시한다, JDBC로 직접 바꿨다면 rebuild()
+//크기는 datajpa.search.username.members, datajpa.search.username.bytes 게이지와 로그로 본다
+@Slf4j
+@Component
+public class UsernameSearch {
+
+    private final ApplicationContext applicationContext;
+    private final MemberRepository memberRepository;
+    private final TransactionTemplate scanTransaction;
+    private final int fetchSize;
+    private final int maxResults;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private UsernameIndex index = new UsernameIndex();
+    private List<MemberChangedEvent> changedDuringBuild; //rebuild 중에 커밋된 변경, 스캔이 끝나면 새 인덱스에 다시 반영한다
+    private volatile boolean built;
+
+    public UsernameSearch(ApplicationContext applicationContext, MemberRepository memberRepository,
+                          PlatformTransactionManager transactionManager, MeterRegistry registry,
+                          @Value("${datajpa.search.fetch-size:1000}") int fetchSize,
+                          @Value("${datajpa.search.max-results:20}") int maxResults) {
+        this.applicationContext = applicationContext;
+        this.memberRepository = memberRepository;
+        this.scanTransaction = new TransactionTemplate(transactionManager); //readOnly면 replica로 간다, 뒤처진 replica를 읽으면 다시 반영하는 변경보다 오래된 값이 남을 수 있다
+        this.fetchSize = fetchSize;
+        this.maxResults = maxResults;
+        Gauge.builder("datajpa.search.username.members", this, search -> search.read(UsernameIndex::size))
+                .register(registry);
+        Gauge.builder("datajpa.search.username.bytes", this, search -> search.read(UsernameIndex::estimatedBytes))
+                .description("estimated heap used by the username index")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @EventListener
+    public void onRefresh(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == applicationContext && !built) {
+            rebuild();
+        }
+    }
+
+    //앞부분 일치 다음에 중간 포함, limit은 datajpa.search.max-results까지
+    public List<UsernameMatch> search(String query, int limit) {
+        int size = Math.min(Math.max(limit, 1), maxResults);
+        lock.readLock().lock();
+        try {
+            return index.search(query, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //새 인덱스를 만드는 동안에도 지금 인덱스로 검색한다
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        UsernameIndex fresh = new UsernameIndex();
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        scanTransaction.execute(status -> {
+            try (Stream<MemberDto> members = memberRepository.streamMemberDto(fetchSize)) {
+                members.forEach(member -> fresh.put(member.getId(), member.getUsername()));
+            }
+            return null;
+        });
+
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild.forEach(event -> apply(fresh, event)); //스캔이 읽은 값보다 같거나 새 값
+            changedDuringBuild = null;
+            index = fresh;
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("username index built: {} members, {} trigrams, ~{} KB, {} ms", fresh.size(), fresh.gramCount(),
+                fresh.estimatedBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    //롤백된 변경은 반영하지 않는다, 트랜잭션 밖에서 발행된 이벤트는 바로
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMemberChanged(MemberChangedEvent event) {
+        if (event.getMemberId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            apply(index, event);
+            if (changedDuringBuild != null) {
+                changedDuringBuild.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(UsernameIndex index, MemberChangedEvent event) {
+        if (event.getType() == MemberChangedEvent.Type.REMOVED || event.getUsername() == null) {
+            index.remove(event.getMemberId());
+        } else {
+            index.put(event.getMemberId(), event.getUsername());
+        }
+    }
+
+    private double read(ToDoubleFunction<UsernameIndex> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.applyAsDouble(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
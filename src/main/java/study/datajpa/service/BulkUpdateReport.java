@@ -0,0 +1,21 @@
+package study.datajpa.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class BulkUpdateReport {
+
+    private final long chunks; //청크 하나가 트랜잭션(커밋) 하나
+    private final long rows; //update count 합계
+    private final Long lastId; //마지막으로 처리한 id, 중간에 실패하면 여기서부터 다시 시작할 수 있다
+    private final long elapsedMillis;
+
+    public BulkUpdateReport(long chunks, long rows, Long lastId, long elapsedMillis) {
+        this.chunks = chunks;
+        this.rows = rows;
+        this.lastId = lastId;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
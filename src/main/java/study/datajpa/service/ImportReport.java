@@ -0,0 +1,28 @@
+package study.datajpa.service;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class ImportReport {
+
+    private final long rows;
+    private final long flushes; //flush 한번이 JDBC batch 한번 (batchSize 단위)
+    private final long elapsedMillis;
+
+    public ImportReport(long rows, long flushes, long elapsedMillis) {
+        this.rows = rows;
+        this.flushes = flushes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @ToString.Include
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    public ImportReport plus(ImportReport other) {
+        return new ImportReport(rows + other.rows, flushes + other.flushes, elapsedMillis + other.elapsedMillis);
+    }
+}
@@ -0,0 +1,171 @@
+package study.datajpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.MemberChangedEvent;
+import study.datajpa.statistics.TeamStatisticsService;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+//update 한번으로 테이블 전체를 바꾸는 대신 id 순서로 chunkSize개씩 나눠서 청크마다 커밋한다, 락을 오래 잡지 않는다
+//호출한 쪽 트랜잭션이 있으면 그 변경을 먼저 flush하고 청크도 그 트랜잭션에서 실행한다 (flush한 row를 새 트랜잭션이 고치면 호출한 쪽 커밋을 기다린다)
+//JPQL 벌크 연산은 Member 2차 캐시 region 전체를 비우므로 update는 JDBC로 실행하고 바뀐 id만 골라서 비운다
+@Slf4j
+@Service
+public class MemberBulkUpdateService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final EntityManagerFactory emf;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate callerTransaction;
+    private final ApplicationEventPublisher publisher;
+    private final TeamStatisticsService teamStatistics;
+    private final int chunkSize;
+
+    public MemberBulkUpdateService(EntityManagerFactory emf, JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager, ApplicationEventPublisher publisher,
+                                   TeamStatisticsService teamStatistics,
+                                   @Value("${datajpa.bulk.chunk-size:1000}") int chunkSize) {
+        this.emf = emf;
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW); //청크마다 커밋
+        this.callerTransaction = new TransactionTemplate(transactionManager); //호출한 쪽 트랜잭션에 참여, 커밋도 호출한 쪽에서
+        this.publisher = publisher;
+        this.teamStatistics = teamStatistics;
+        this.chunkSize = chunkSize;
+    }
+
+    //MemberRepository.bulkAgePlus의 청크 버전
+    public BulkUpdateReport bulkAgePlus(int age) {
+        return bulkAgePlus(age, chunkSize, report -> { });
+    }
+
+    public BulkUpdateReport bulkAgePlus(int age, int chunkSize, Consumer<BulkUpdateReport> progress) {
+        return updateInChunks("m.age >= :age", "age", age,
+                "update member set age = age + 1, version = version + 1 where member_id in (%s) and age >= ?",
+                ids -> teamStatistics.agesIncremented(age, ids), //팀별 나이 분포도 같은 청크 트랜잭션에서 옮긴다
+                chunkSize, progress);
+    }
+
+    //jpqlCondition으로 대상 id를 chunkSize개씩 고르고, 그 id 목록에만 sql을 실행한다 (sql의 %s에 id 목록, 마지막 파라미터는 value)
+    //범위(between)로 update하면 조회 뒤에 범위 안에 들어온 회원도 바뀌는데 캐시에서는 지워지지 않는다, update와 캐시 제거는 같은 id 목록으로
+    //afterChunk는 update 직후 같은 트랜잭션에서 id 목록으로 부른다
+    private BulkUpdateReport updateInChunks(String jpqlCondition, String parameter, Object value, String sql,
+                                            Consumer<List<Long>> afterChunk, int chunkSize, Consumer<BulkUpdateReport> progress) {
+        EntityManager callerEm = EntityManagerFactoryUtils.getTransactionalEntityManager(emf); //호출한 쪽 영속성 컨텍스트, 없으면 null
+        TransactionTemplate transaction = callerEm == null ? chunkTransaction : callerTransaction;
+        if (callerEm != null) {
+            callerEm.flush(); //아래 refresh가 아직 내보내지 않은 변경을 덮어쓰지 않게
+        }
+        long start = System.nanoTime();
+        long chunks = 0;
+        long rows = 0;
+        Long lastId = 0L;
+        BulkUpdateReport report = new BulkUpdateReport(0, 0, null, 0);
+
+        while (true) {
+            Long after = lastId;
+            Chunk chunk = transaction.execute(status -> {
+                List<Long> ids = em.createQuery(
+                        "select m.id from Member m where " + jpqlCondition + " and m.id > :after order by m.id", Long.class)
+                        .setParameter(parameter, value)
+                        .setParameter("after", after)
+                        .setMaxResults(chunkSize)
+                        .getResultList();
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                //조회와 update 사이에 바뀐 row도 있을 수 있으므로 조건을 update에서 한번 더 건다
+                List<Object> args = new ArrayList<>(ids);
+                args.add(value);
+                int updated = jdbcTemplate.update(String.format(sql, placeholders(ids.size())), args.toArray());
+                afterChunk.accept(ids);
+                return new Chunk(ids, updated);
+            });
+            if (chunk == null) {
+                break;
+            }
+
+            List<Long> ids = chunk.ids;
+            refresh(callerEm, ids);
+            publisher.publishEvent(MemberChangedEvent.bulkUpdated());
+
+            chunks++;
+            rows += chunk.updated;
+            lastId = ids.get(ids.size() - 1);
+            report = new BulkUpdateReport(chunks, rows, lastId, (System.nanoTime() - start) / 1_000_000);
+            log.info("bulk update progress: {}", report);
+            progress.accept(report);
+        }
+        return report;
+    }
+
+    //호출한 쪽 영속성 컨텍스트의 바뀐 Member는 DB 값으로 다시 읽고(변경은 시작할 때 flush했다), 2차 캐시에서는 바뀐 Member만 제거한다
+    //캐시된 쿼리 결과는 어떤 id를 포함하는지 알 수 없으므로 쿼리 캐시는 통째로 비운다
+    private void refresh(EntityManager callerEm, List<Long> ids) {
+        if (callerEm != null) {
+            SessionImplementor session = callerEm.unwrap(SessionImplementor.class);
+            EntityPersister persister = session.getFactory().getMetamodel().entityPersister(Member.class);
+            for (Long id : ids) {
+                Object managed = session.getPersistenceContext().getEntity(session.generateEntityKey(id, persister));
+                if (managed != null) {
+                    callerEm.refresh(managed);
+                }
+            }
+        }
+
+        evict(ids);
+        if (callerEm != null) {
+            //아직 커밋 전이라 다른 트랜잭션이 이전 값을 다시 캐시했을 수 있으므로 커밋 후에 한번 더 (MemberCacheInvalidator와 같은 이유)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(ids);
+                }
+            });
+        }
+    }
+
+    private void evict(List<Long> ids) {
+        for (Long id : ids) {
+            emf.getCache().evict(Member.class, id);
+        }
+        emf.getCache().unwrap(org.hibernate.Cache.class).evictQueryRegions();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private static class Chunk {
+        private final List<Long> ids;
+        private final int updated;
+
+        private Chunk(List<Long> ids, int updated) {
+            this.ids = ids;
+            this.updated = updated;
+        }
+    }
+}
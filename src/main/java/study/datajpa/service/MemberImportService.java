@@ -0,0 +1,84 @@
+package study.datajpa.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//save()를 한건씩 호출하는 대신 persist만 하고 batchSize마다 flush/clear
+//flush 시점에 하이버네이트가 insert를 JDBC batch로 묶어서 보내고, clear로 영속성 컨텍스트가 커지지 않게 한다
+@Slf4j
+@Service
+@Transactional
+public class MemberImportService {
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final int batchSize;
+
+    public MemberImportService(@Value("${datajpa.import.batch-size:1000}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    //팀을 먼저 넣고 회원을 넣는다, 회원이 참조하는 팀은 clear 이후 준영속이어도 식별자만 있으면 된다
+    public ImportReport importAll(Iterable<Team> teams, Iterable<Member> members) {
+        return importTeams(teams).plus(importMembers(members));
+    }
+
+    public ImportReport importTeams(Iterable<Team> teams) {
+        return persistAll(teams.iterator(), batchSize);
+    }
+
+    public ImportReport importMembers(Iterable<Member> members) {
+        return persistAll(members.iterator(), batchSize);
+    }
+
+    public ImportReport importMembers(Stream<Member> members) {
+        return persistAll(members.iterator(), batchSize);
+    }
+
+    public ImportReport importMembers(Stream<Member> members, int batchSize) {
+        return persistAll(members.iterator(), batchSize);
+    }
+
+    private ImportReport persistAll(Iterator<?> entities, int batchSize) {
+        em.flush(); //이전에 쌓인 변경이 batch에 섞이지 않도록 먼저 내보낸다
+        Session session = em.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+
+        long start = System.nanoTime();
+        long rows = 0;
+        long flushes = 0;
+        try {
+            while (entities.hasNext()) {
+                em.persist(entities.next());
+                if (++rows % batchSize == 0) {
+                    em.flush();
+                    em.clear();
+                    flushes++;
+                }
+            }
+            if (rows % batchSize != 0) {
+                em.flush();
+                em.clear();
+                flushes++;
+            }
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+        }
+
+        ImportReport report = new ImportReport(rows, flushes, (System.nanoTime() - start) / 1_000_000);
+        log.info("import finished: {}", report);
+        return report;
+    }
+}
@@ -0,0 +1,22 @@
+package study.datajpa.sql;
+
+//스택에서 이 패키지를 제외한 첫번째 애플리케이션 코드 위치, N+1로 의심될 때만 계산한다
+final class CallSites {
+
+    private static final String APPLICATION_PACKAGE = "study.datajpa.";
+    private static final String SQL_PACKAGE = "study.datajpa.sql.";
+
+    private CallSites() {
+    }
+
+    static String current() {
+        for (StackTraceElement element : Thread.currentThread().getStackTrace()) {
+            String className = element.getClassName();
+            if (className.startsWith(APPLICATION_PACKAGE) && !className.startsWith(SQL_PACKAGE)
+                    && !className.contains("$$") && !className.contains("$HibernateProxy$")) { //스프링, 하이버네이트 프록시 제외
+                return className.substring(APPLICATION_PACKAGE.length()) + "." + element.getMethodName() + ":" + element.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
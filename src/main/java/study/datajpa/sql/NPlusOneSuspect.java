@@ -0,0 +1,23 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class NPlusOneSuspect {
+
+    private final String shape;            //반복된 SQL
+    private final String repositoryMethod; //실행 중이던 리포지토리 메소드, 지연 로딩처럼 밖에서 실행되면 null
+    private final String callSite;         //SQL을 유발한 애플리케이션 코드 위치
+
+    NPlusOneSuspect(String shape, String repositoryMethod, String callSite) {
+        this.shape = shape;
+        this.repositoryMethod = repositoryMethod;
+        this.callSite = callSite;
+    }
+
+    public String getOrigin() {
+        return repositoryMethod != null ? repositoryMethod : callSite;
+    }
+}
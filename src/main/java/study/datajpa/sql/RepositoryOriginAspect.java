@@ -0,0 +1,39 @@
+package study.datajpa.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+//SQL이 어느 리포지토리 메소드에서 실행되었는지 SqlStatementMonitor에 알려준다
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryOriginAspect {
+
+    private static final String REPOSITORY_PACKAGE = "study.datajpa.repository.";
+
+    private final SqlStatementMonitor monitor;
+
+    @Around("execution(* study.datajpa.repository.*Repository.*(..))")
+    public Object trace(ProceedingJoinPoint joinPoint) throws Throwable {
+        monitor.enterRepository(repositoryName(joinPoint) + "." + joinPoint.getSignature().getName());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            monitor.exitRepository();
+        }
+    }
+
+    //스프링 데이터 리포지토리는 findById 같은 메소드가 CrudRepository에 선언되어 있어서 프록시가 구현한 인터페이스 이름을 쓴다
+    private static String repositoryName(ProceedingJoinPoint joinPoint) {
+        for (Class<?> type : joinPoint.getThis().getClass().getInterfaces()) {
+            if (type.getName().startsWith(REPOSITORY_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return AopUtils.getTargetClass(joinPoint.getTarget()).getSimpleName();
+    }
+}
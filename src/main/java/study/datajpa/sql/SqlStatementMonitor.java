@@ -0,0 +1,137 @@
+package study.datajpa.sql;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Supplier;
+
+//p6spy 리스너로 등록되어 실행되는 모든 SQL을 현재 스레드에 열린 StatementScope들에 기록한다
+//HTTP 요청(StatementCountingFilter), 트랜잭션(첫 SQL 실행 시 자동), 테스트 블록(open/assertAtMost) 단위로 센다
+@Slf4j
+@Component
+public class SqlStatementMonitor extends SimpleJdbcEventListener {
+
+    static final String REQUEST = "request ";
+    static final String TRANSACTION = "transaction ";
+
+    private final ThreadLocal<List<StatementScope>> scopes = ThreadLocal.withInitial(ArrayList::new);
+    private final ThreadLocal<Deque<String>> repositoryMethods = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final int nPlusOneThreshold;
+    private final ObjectProvider<MeterRegistry> registry; //DataSource보다 먼저 만들어지는 리스너라서 MeterRegistry는 나중에 꺼낸다
+
+    public SqlStatementMonitor(@Value("${datajpa.sql.n-plus-one-threshold:5}") int nPlusOneThreshold,
+                               ObjectProvider<MeterRegistry> registry) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.registry = registry;
+    }
+
+    public StatementScope open(String name) {
+        return open(name, false);
+    }
+
+    //block이 실행하는 SQL이 max개를 넘으면 실패
+    public void assertAtMost(int max, Runnable block) {
+        assertAtMost(max, () -> {
+            block.run();
+            return null;
+        });
+    }
+
+    public <T> T assertAtMost(int max, Supplier<T> block) {
+        T result;
+        StatementScope scope = open("budget");
+        try {
+            result = block.get();
+        } finally {
+            scope.close();
+        }
+        if (scope.getCount() > max) {
+            throw new StatementBudgetExceededException(max, scope);
+        }
+        return result;
+    }
+
+    StatementScope open(String name, boolean report) {
+        StatementScope scope = new StatementScope(name, nPlusOneThreshold, closed -> {
+            scopes.get().remove(closed);
+            if (report) {
+                report(closed);
+            }
+        });
+        scopes.get().add(scope);
+        return scope;
+    }
+
+    void enterRepository(String method) {
+        repositoryMethods.get().push(method);
+    }
+
+    void exitRepository() {
+        repositoryMethods.get().pop();
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        //executeBatch도 한번으로 센다
+        openTransactionScopeIfNeeded();
+        String repositoryMethod = repositoryMethods.get().peek();
+        for (StatementScope scope : scopes.get()) {
+            scope.record(statementInformation.getSql(), repositoryMethod);
+        }
+    }
+
+    private void openTransactionScopeIfNeeded() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        String name = TransactionSynchronizationManager.getCurrentTransactionName();
+        StatementScope scope = open(TRANSACTION + (name == null ? "" : name), true);
+        TransactionSynchronizationManager.bindResource(this, scope);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(SqlStatementMonitor.this);
+                scope.close();
+            }
+        });
+    }
+
+    private void report(StatementScope scope) {
+        boolean transaction = scope.getName().startsWith(TRANSACTION);
+        DistributionSummary.builder("datajpa.sql.statements")
+                .description("SQL statements executed per HTTP request or transaction")
+                .tag("scope", transaction ? "transaction" : "request")
+                .register(registry.getObject())
+                .record(scope.getCount());
+
+        //요청 안의 트랜잭션이면 같은 SQL을 요청 범위에서도 기록하고 있으므로 N+1은 요청이 끝날 때 한번만 알린다
+        if (transaction && scopes.get().stream().anyMatch(open -> open.getName().startsWith(REQUEST))) {
+            return;
+        }
+        for (NPlusOneSuspect suspect : scope.getNPlusOneSuspects()) {
+            Counter.builder("datajpa.sql.n_plus_one")
+                    .description("Repeated select shapes detected as N+1")
+                    .tag("origin", suspect.getOrigin())
+                    .register(registry.getObject())
+                    .increment();
+            log.warn("N+1 suspected in [{}]: {} executed {}+ times, origin={}, callSite={}",
+                    scope.getName(), suspect.getShape(), nPlusOneThreshold, suspect.getOrigin(), suspect.getCallSite());
+        }
+    }
+}
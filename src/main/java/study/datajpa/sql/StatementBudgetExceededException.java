@@ -0,0 +1,14 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+
+@Getter
+public class StatementBudgetExceededException extends AssertionError {
+
+    private final transient StatementScope scope;
+
+    StatementBudgetExceededException(int max, StatementScope scope) {
+        super("expected at most " + max + " statements but was " + scope.getCount() + ": " + scope.getShapes());
+        this.scope = scope;
+    }
+}
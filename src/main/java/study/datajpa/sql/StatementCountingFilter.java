@@ -0,0 +1,27 @@
+package study.datajpa.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+//HTTP 요청 하나에서 실행된 SQL 개수를 세고 N+1이 의심되면 경고 로그를 남긴다
+@Component
+@RequiredArgsConstructor
+public class StatementCountingFilter extends OncePerRequestFilter {
+
+    private final SqlStatementMonitor monitor;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (StatementScope ignored = monitor.open(SqlStatementMonitor.REQUEST + request.getMethod() + " " + request.getRequestURI(), true)) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
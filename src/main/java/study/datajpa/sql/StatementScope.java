@@ -0,0 +1,67 @@
+package study.datajpa.sql;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+//한 범위(HTTP 요청, 트랜잭션, 테스트 블록) 안에서 실행된 SQL 개수와 모양별 횟수를 모은다
+public class StatementScope implements AutoCloseable {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\((\\s*\\?\\s*,)*\\s*\\?\\s*\\)");
+
+    @Getter
+    private final String name;
+    private final int nPlusOneThreshold;
+    private final Consumer<StatementScope> onClose;
+
+    @Getter
+    private int count;
+    private final Map<String, Integer> shapes = new LinkedHashMap<>();
+    private final List<NPlusOneSuspect> nPlusOneSuspects = new ArrayList<>();
+    private boolean closed;
+
+    StatementScope(String name, int nPlusOneThreshold, Consumer<StatementScope> onClose) {
+        this.name = name;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.onClose = onClose;
+    }
+
+    void record(String sql, String repositoryMethod) {
+        count++;
+        String shape = shapeOf(sql);
+        int times = shapes.merge(shape, 1, Integer::sum);
+        //같은 모양의 select가 임계치만큼 반복되면 N+1로 본다, 한 모양당 한번만 기록
+        if (times == nPlusOneThreshold && shape.startsWith("select")) {
+            nPlusOneSuspects.add(new NPlusOneSuspect(shape, repositoryMethod, CallSites.current()));
+        }
+    }
+
+    //바인딩 값은 이미 ?로 되어 있으므로 공백과 in (?, ?, ...) 길이만 정규화
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim().toLowerCase()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("in (?...)");
+    }
+
+    public Map<String, Integer> getShapes() {
+        return Collections.unmodifiableMap(shapes);
+    }
+
+    public List<NPlusOneSuspect> getNPlusOneSuspects() {
+        return Collections.unmodifiableList(nPlusOneSuspects);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            onClose.accept(this);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package study.datajpa.statistics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+//JPQL 벌크 연산 bulkAgePlus는 이벤트가 없어서 TeamStatisticsListener가 모른다, 같은 트랜잭션에서 팀별 나이 분포를 한살씩 옮긴다
+//호출한 쪽 트랜잭션이 없으면 여기서 열어서 bulkAgePlus와 통계를 같이 커밋한다, 둘 중 하나가 실패하면 둘 다 롤백
+@Aspect
+@Component
+public class TeamStatisticsAspect {
+
+    private final TeamStatisticsService teamStatistics;
+    private final TransactionTemplate transaction;
+
+    public TeamStatisticsAspect(TeamStatisticsService teamStatistics, PlatformTransactionManager transactionManager) {
+        this.teamStatistics = teamStatistics;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Around("(execution(int study.datajpa.repository.MemberRepository.bulkAgePlus(int))" +
+            " || execution(int study.datajpa.repository.MemberJpaRepository.bulkAgePlus(int))) && args(age)")
+    public Object aroundBulkAgePlus(ProceedingJoinPoint joinPoint, int age) {
+        return transaction.execute(status -> {
+            Object updated = proceed(joinPoint);
+            teamStatistics.agesIncremented(age);
+            return updated;
+        });
+    }
+
+    private static Object proceed(ProceedingJoinPoint joinPoint) {
+        try {
+            return joinPoint.proceed();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package study.datajpa.statistics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+//팀별 회원 수(team.member_count)와 나이별 회원 수(team_age_count)의 증감을 모았다가 apply로 한번에 반영한다
+//값을 덮어쓰지 않고 member_count + ? 로 고치므로 같은 팀을 동시에 바꿔도 서로 잃어버리지 않는다
+//팀 row를 먼저 고쳐서 락을 잡고 그 팀의 나이 row를 고친다, 같은 팀을 고치는 트랜잭션은 팀 row에서 줄을 서므로 없는 나이 row를 동시에 insert하지 않는다
+//팀 id 순서로 고쳐서 트랜잭션끼리 교착 상태가 되지 않는다
+public class TeamStatisticsDeltas {
+
+    private static final String UPDATE_TEAM = "update team set member_count = member_count + ? where team_id = ?";
+    private static final String UPDATE_AGE = "update team_age_count set member_count = member_count + ? where team_id = ? and age = ?";
+    private static final String INSERT_AGE = "insert into team_age_count (team_id, age, member_count) values (?, ?, ?)";
+
+    private final SortedMap<Long, Integer> counts = new TreeMap<>();
+    private final SortedMap<Long, SortedMap<Integer, Long>> ages = new TreeMap<>();
+
+    //나이가 age인 회원이 팀에 들어오면 1, 나가면 -1, 팀이 없는 회원은 세지 않는다
+    public void add(Long teamId, int age, int delta) {
+        if (teamId == null) {
+            return;
+        }
+        counts.merge(teamId, delta, Integer::sum);
+        age(teamId, age, delta);
+    }
+
+    //팀은 그대로 두고 나이만 바뀐 회원 members명
+    public void move(Long teamId, int fromAge, int toAge, long members) {
+        age(teamId, fromAge, -members);
+        age(teamId, toAge, members);
+    }
+
+    private void age(Long teamId, int age, long delta) {
+        ages.computeIfAbsent(teamId, key -> new TreeMap<>()).merge(age, delta, Long::sum);
+    }
+
+    //반영할 것이 있는 팀, 들어왔다 나가서 상쇄된 팀은 빠진다
+    public Set<Long> teamIds() {
+        Set<Long> teamIds = new TreeSet<>();
+        counts.forEach((teamId, delta) -> {
+            if (delta != 0) {
+                teamIds.add(teamId);
+            }
+        });
+        ages.forEach((teamId, byAge) -> {
+            if (byAge.values().stream().anyMatch(delta -> delta != 0)) {
+                teamIds.add(teamId);
+            }
+        });
+        return teamIds;
+    }
+
+    public void apply(Connection connection) throws SQLException {
+        Set<Long> teamIds = teamIds();
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement team = connection.prepareStatement(UPDATE_TEAM);
+             PreparedStatement updateAge = connection.prepareStatement(UPDATE_AGE);
+             PreparedStatement insertAge = connection.prepareStatement(INSERT_AGE)) {
+            for (Long teamId : teamIds) {
+                team.setInt(1, counts.getOrDefault(teamId, 0));
+                team.setLong(2, teamId);
+                team.executeUpdate(); //나이만 바뀌어 0이어도 실행해서 팀 row 락을 잡는다
+
+                for (Map.Entry<Integer, Long> age : ages.getOrDefault(teamId, Collections.emptySortedMap()).entrySet()) {
+                    if (age.getValue() == 0) {
+                        continue;
+                    }
+                    updateAge.setLong(1, age.getValue());
+                    updateAge.setLong(2, teamId);
+                    updateAge.setInt(3, age.getKey());
+                    if (updateAge.executeUpdate() == 0) {
+                        insertAge.setLong(1, teamId);
+                        insertAge.setInt(2, age.getKey());
+                        insertAge.setLong(3, age.getValue());
+                        insertAge.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package study.datajpa.statistics;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class TeamStatisticsReport {
+
+    private final long teams; //회원 테이블과 비교한 팀 수
+    private final long repaired; //통계가 달라서 다시 만든 팀 수
+    private final long orphans; //지워진 팀에 남아 있던 team_age_count row 수
+    private final long elapsedMillis;
+
+    public TeamStatisticsReport(long teams, long repaired, long orphans, long elapsedMillis) {
+        this.teams = teams;
+        this.repaired = repaired;
+        this.orphans = orphans;
+        this.elapsedMillis = elapsedMillis;
+    }
+}
@@ -0,0 +1,122 @@
+package study.datajpa.statistics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//팀 통계(Team.memberCount, team_age_count)를 회원 테이블로 다시 만든다
+//평소에는 TeamStatisticsListener가 증감으로 고치고, 이벤트가 없는 벌크 연산이나 실패로 어긋난 것을 여기서 맞춘다
+@Slf4j
+@Service
+public class TeamStatisticsService {
+
+    private static final String INSERT_AGE_COUNTS = "insert into team_age_count (team_id, age, member_count)" +
+            " select team_id, age, count(*) from member where team_id is not null";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory emf;
+    private final TransactionTemplate teamTransaction;
+
+    public TeamStatisticsService(JdbcTemplate jdbcTemplate, EntityManagerFactory emf, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emf = emf;
+        this.teamTransaction = new TransactionTemplate(transactionManager);
+        this.teamTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW); //팀마다 커밋
+    }
+
+    //전체를 한 트랜잭션으로 다시 만든다, 모든 팀 row를 먼저 고쳐서 락을 잡으므로 그동안 회원을 바꾸는 트랜잭션은 커밋에서 기다린다
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.update("update team set member_count = (select count(*) from member m where m.team_id = team.team_id)");
+        jdbcTemplate.update("delete from team_age_count");
+        int rows = jdbcTemplate.update(INSERT_AGE_COUNTS + " group by team_id, age");
+        emf.getCache().evict(Team.class);
+        log.info("team statistics rebuilt: {} rows", rows);
+        return rows;
+    }
+
+    //팀마다 회원 테이블과 비교해서 다른 팀만 다시 만든다, 팀마다 따로 커밋해서 락을 오래 잡지 않는다
+    @Scheduled(cron = "${datajpa.team-statistics.reconcile-cron:-}")
+    public TeamStatisticsReport reconcile() {
+        long start = System.nanoTime();
+        List<Long> teamIds = jdbcTemplate.queryForList("select team_id from team order by team_id", Long.class);
+        long repaired = 0;
+        for (Long teamId : teamIds) {
+            if (Boolean.TRUE.equals(teamTransaction.execute(status -> reconcile(teamId)))) {
+                repaired++;
+            }
+        }
+        int orphans = jdbcTemplate.update("delete from team_age_count where team_id not in (select team_id from team)");
+
+        TeamStatisticsReport report = new TeamStatisticsReport(teamIds.size(), repaired, orphans, (System.nanoTime() - start) / 1_000_000);
+        log.info("team statistics reconciled: {}", report);
+        return report;
+    }
+
+    //팀 row 락을 잡은 뒤에 읽으므로 그 팀의 증감을 아직 반영하지 않은 트랜잭션은 회원 변경도 아직 보이지 않는다
+    private boolean reconcile(Long teamId) {
+        List<Integer> memberCount = jdbcTemplate.queryForList("select member_count from team where team_id = ? for update", Integer.class, teamId);
+        if (memberCount.isEmpty()) {
+            return false; //그 사이 지워진 팀
+        }
+        Map<Integer, Long> actual = ageCounts("select age, count(*) from member where team_id = ? group by age", teamId);
+        Map<Integer, Long> stored = ageCounts("select age, member_count from team_age_count where team_id = ? and member_count <> 0", teamId);
+        long actualCount = actual.values().stream().mapToLong(Long::longValue).sum();
+        if (actual.equals(stored) && memberCount.get(0) == actualCount) {
+            return false;
+        }
+
+        log.warn("team statistics out of sync: team={}, memberCount={} (actual {}), ages={} (actual {})",
+                teamId, memberCount.get(0), actualCount, stored, actual);
+        jdbcTemplate.update("delete from team_age_count where team_id = ?", teamId);
+        jdbcTemplate.update(INSERT_AGE_COUNTS + " and team_id = ? group by team_id, age", teamId);
+        jdbcTemplate.update("update team set member_count = ? where team_id = ?", actualCount, teamId);
+        emf.getCache().evict(Team.class, teamId);
+        return true;
+    }
+
+    private Map<Integer, Long> ageCounts(String sql, Long teamId) {
+        Map<Integer, Long> counts = new TreeMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> counts.put(rs.getInt(1), rs.getLong(2)), teamId);
+        return counts;
+    }
+
+    //bulkAgePlus(age)가 끝난 뒤에 부른다, age 이상인 회원은 모두 1 올랐으므로 지금 age + 1 이상인 회원은 한살 적은 칸에서 옮겨온 것이다
+    @Transactional
+    public void agesIncremented(int age) {
+        moveAges("age > ?", age);
+    }
+
+    //MemberBulkUpdateService.bulkAgePlus의 청크 하나 (update한 id 목록), 청크 트랜잭션 안에서 부른다
+    @Transactional
+    public void agesIncremented(int age, List<Long> ids) {
+        List<Object> args = new ArrayList<>(ids);
+        args.add(age);
+        moveAges("member_id in (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ") and age > ?", args.toArray());
+    }
+
+    private void moveAges(String condition, Object... args) {
+        TeamStatisticsDeltas deltas = new TeamStatisticsDeltas();
+        jdbcTemplate.query("select team_id, age, count(*) from member where team_id is not null and " + condition + " group by team_id, age",
+                (RowCallbackHandler) rs -> deltas.move(rs.getLong(1), rs.getInt(2) - 1, rs.getInt(2), rs.getLong(3)), args);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            deltas.apply(connection);
+            return null;
+        });
+    }
+}
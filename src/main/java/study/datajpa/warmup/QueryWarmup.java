@@ -0,0 +1,265 @@
+package study.datajpa.warmup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import study.datajpa.warmup.QueryWarmupReport.Entry;
+import study.datajpa.warmup.QueryWarmupReport.Kind;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.BaseStream;
+import java.util.stream.Collectors;
+
+//배포 직후 첫 요청이 느리지 않게 웹 서버가 요청을 받기 전(ContextRefreshedEvent)에 리포지토리 쿼리를 준비한다
+//1. 커넥션 풀을 채운다 2. @Query/@NamedQuery를 하이버네이트 쿼리 플랜 캐시에 올린다 3. (dry-run) 빈 파라미터로 한번씩 실행하고 롤백
+//메서드별 시간은 datajpa.warmup.query 타이머(tag method, phase)와 로그, getReport()로 본다
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datajpa.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryWarmup {
+
+    private final ApplicationContext applicationContext;
+    private final EntityManagerFactory emf;
+    private final DataSource dataSource;
+    private final TransactionTemplate dryRunTransaction;
+    private final MeterRegistry registry;
+    private final boolean dryRun;
+    private final int connections;
+
+    private volatile QueryWarmupReport report;
+
+    public QueryWarmup(ApplicationContext applicationContext, EntityManagerFactory emf, DataSource dataSource,
+                       PlatformTransactionManager transactionManager, MeterRegistry registry,
+                       @Value("${datajpa.warmup.dry-run:false}") boolean dryRun,
+                       @Value("${datajpa.warmup.connections:${spring.datasource.hikari.minimum-idle:${spring.datasource.hikari.maximum-pool-size:10}}}") int connections) {
+        this.applicationContext = applicationContext;
+        this.emf = emf;
+        this.dataSource = dataSource;
+        this.dryRunTransaction = new TransactionTemplate(transactionManager);
+        this.dryRunTransaction.setReadOnly(true);
+        this.registry = registry;
+        this.dryRun = dryRun;
+        this.connections = connections;
+    }
+
+    @EventListener
+    public void onRefresh(ContextRefreshedEvent event) {
+        if (event.getApplicationContext() == applicationContext && report == null) {
+            report = warmup();
+        }
+    }
+
+    public QueryWarmupReport getReport() {
+        return report;
+    }
+
+    public QueryWarmupReport warmup() {
+        long start = System.nanoTime();
+        int primed = primeConnections();
+        long connectionMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<Entry> entries = new ArrayList<>();
+        Repositories repositories = new Repositories(applicationContext);
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Class<?> domainType : repositories) {
+                RepositoryInformation information = repositories.getRequiredRepositoryInformation(domainType);
+                Object repository = repositories.getRepositoryFor(domainType).orElse(null);
+                for (Method method : information.getQueryMethods()) {
+                    entries.add(warmup(em, information, repository, method));
+                }
+            }
+        } finally {
+            em.close();
+        }
+
+        QueryWarmupReport result = new QueryWarmupReport(primed, connectionMillis, entries);
+        log.info("query warm-up: {} connections in {}ms, {} query methods, total {}ms, slowest {}", primed, connectionMillis,
+                entries.size(), result.getTotalMillis(), result.slowest(5).stream()
+                        .map(entry -> entry.getMethod() + " " + TimeUnit.NANOSECONDS.toMillis(entry.getTotalNanos()) + "ms")
+                        .collect(Collectors.joining(", ")));
+        return result;
+    }
+
+    //최소 유휴 커넥션(hikari minimum-idle, 설정하지 않으면 히카리처럼 maximum-pool-size)만큼 동시에 빌렸다 돌려준다, 요청 스레드가 커넥션 생성을 기다리지 않게
+    //풀이 어차피 유지할 개수까지만 연다, 그보다 많이 열면 idle-timeout이 지나 다시 닫힌다
+    private int primeConnections() {
+        List<Connection> opened = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                opened.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("query warm-up: primed {} of {} connections", opened.size(), connections, e);
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+        return opened.size();
+    }
+
+    private Entry warmup(EntityManager em, RepositoryInformation information, Object repository, Method method) {
+        String name = information.getRepositoryInterface().getSimpleName() + "." + method.getName();
+        Query query = AnnotatedElementUtils.findMergedAnnotation(method, Query.class);
+
+        long start = System.nanoTime();
+        Kind kind = compile(em, information, method, query);
+        long compileNanos = System.nanoTime() - start;
+        record(name, "compile", compileNanos);
+
+        String skipped = skipDryRun(method, repository);
+        long dryRunNanos = 0;
+        if (skipped == null) {
+            start = System.nanoTime();
+            try {
+                dryRun(repository, method, information.getDomainType());
+            } catch (RuntimeException e) {
+                skipped = "failed: " + e.getMessage();
+                log.warn("query warm-up: dry-run of {} failed", name, e);
+            }
+            dryRunNanos = System.nanoTime() - start;
+            record(name, "dry-run", dryRunNanos);
+        }
+        log.debug("query warm-up: {} {} compile {}us, dry-run {}us{}", name, kind, compileNanos / 1000, dryRunNanos / 1000,
+                skipped == null ? "" : " (" + skipped + ")");
+        return new Entry(name, kind, compileNanos, dryRunNanos, skipped);
+    }
+
+    //Spring Data가 실행할 때와 같은 문자열로 만들어야 같은 플랜 캐시 항목을 쓴다 (Sort가 붙으면 다른 항목)
+    private Kind compile(EntityManager em, RepositoryInformation information, Method method, Query query) {
+        boolean page = Page.class.isAssignableFrom(method.getReturnType());
+        if (query != null && StringUtils.hasText(query.value())) {
+            if (query.nativeQuery()) {
+                em.createNativeQuery(query.value()); //네이티브 쿼리는 파라미터 메타데이터가 캐시된다
+                if (page && StringUtils.hasText(query.countQuery())) {
+                    em.createNativeQuery(query.countQuery());
+                }
+                return Kind.NATIVE;
+            }
+            em.createQuery(query.value());
+            if (page) {
+                em.createQuery(StringUtils.hasText(query.countQuery()) ? query.countQuery() : countQuery(query));
+            }
+            return Kind.JPQL;
+        }
+        String namedQuery = information.getDomainType().getSimpleName() + "." + method.getName();
+        try {
+            //Spring Data(NamedQuery.hasNamedQuery)처럼 만들어보고 없으면 예외로 판단한다, em에 트랜잭션이 없으므로 롤백 표시는 상관없다
+            em.createNamedQuery(namedQuery); //기동 시 검사(hibernate.query.startup_check)에서 이미 컴파일돼 있으면 캐시 조회만
+            return Kind.NAMED;
+        } catch (IllegalArgumentException e) {
+            return Kind.DERIVED;
+        }
+    }
+
+    //Spring Data가 만드는 것과 같은 count 쿼리, 2.2에는 deprecated가 아닌 공개 API가 없다 (StringQuery.deriveCountQuery는 패키지 내부)
+    @SuppressWarnings("deprecation")
+    private static String countQuery(Query query) {
+        return QueryUtils.createCountQueryFor(query.value(), StringUtils.hasText(query.countProjection()) ? query.countProjection() : null);
+    }
+
+    private String skipDryRun(Method method, Object repository) {
+        if (!dryRun) {
+            return "dry-run disabled";
+        }
+        if (repository == null) {
+            return "no repository bean";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(method, Modifying.class)) {
+            return "modifying";
+        }
+        if (AnnotatedElementUtils.hasAnnotation(method, Lock.class)) {
+            return "locking";
+        }
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            if (sample(ResolvableType.forMethodParameter(method, i), Object.class) == null) {
+                return "unsupported parameter " + method.getParameterTypes()[i].getSimpleName();
+            }
+        }
+        return null;
+    }
+
+    //읽기 전용 트랜잭션에서 실행하고 롤백, 결과는 버린다
+    private void dryRun(Object repository, Method method, Class<?> domainType) {
+        Object[] arguments = new Object[method.getParameterCount()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = sample(ResolvableType.forMethodParameter(method, i), domainType);
+        }
+        dryRunTransaction.execute(status -> {
+            status.setRollbackOnly();
+            Object result = ReflectionUtils.invokeMethod(method, repository, arguments);
+            if (result instanceof BaseStream) {
+                ((BaseStream<?, ?>) result).close();
+            }
+            return null;
+        });
+    }
+
+    //결과가 없어도 되는 값, 모르는 타입이면 null
+    private static Object sample(ResolvableType type, Class<?> domainType) {
+        Class<?> raw = type.resolve(Object.class);
+        if (raw == String.class) {
+            return "";
+        } else if (raw == int.class || raw == Integer.class) {
+            return 0;
+        } else if (raw == long.class || raw == Long.class) {
+            return 0L;
+        } else if (raw == boolean.class || raw == Boolean.class) {
+            return false;
+        } else if (raw == Pageable.class) {
+            return PageRequest.of(0, 1);
+        } else if (raw == Sort.class) {
+            return Sort.unsorted();
+        } else if (raw == Class.class) {
+            return domainType; //동적 프로젝션은 엔티티로
+        } else if (Collection.class.isAssignableFrom(raw)) {
+            Object element = sample(type.asCollection().getGeneric(), domainType);
+            return element == null ? null : Collections.singletonList(element);
+        }
+        return null;
+    }
+
+    private void record(String method, String phase, long nanos) {
+        Timer.builder("datajpa.warmup.query")
+                .tag("method", method)
+                .tag("phase", phase)
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,70 @@
+package study.datajpa.warmup;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//QueryWarmup 결과, 쿼리 메서드별 준비 시간 (콜드 스타트에서 어떤 쿼리가 오래 걸리는지)
+@Getter
+@ToString
+public class QueryWarmupReport {
+
+    private final int connections;
+    private final long connectionMillis;
+    private final List<Entry> entries;
+
+    QueryWarmupReport(int connections, long connectionMillis, List<Entry> entries) {
+        this.connections = connections;
+        this.connectionMillis = connectionMillis;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public List<Entry> slowest(int n) {
+        return entries.stream()
+                .sorted(Comparator.comparingLong(Entry::getTotalNanos).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+    }
+
+    public Entry entry(String method) {
+        return entries.stream().filter(entry -> entry.getMethod().equals(method)).findFirst().orElse(null);
+    }
+
+    public long getTotalMillis() {
+        return connectionMillis + entries.stream().mapToLong(Entry::getTotalNanos).sum() / 1_000_000;
+    }
+
+    public enum Kind {
+        JPQL, //@Query
+        NATIVE, //@Query(nativeQuery = true)
+        NAMED, //@NamedQuery (엔티티명.메서드명)
+        DERIVED //메서드 이름으로 만드는 쿼리, 실행할 때 Criteria로 만들어지므로 dry-run으로만 준비된다
+    }
+
+    @Getter
+    @ToString
+    public static class Entry {
+
+        private final String method; //MemberRepository.findByUsername
+        private final Kind kind;
+        private final long compileNanos; //JPQL 파싱/SQL 변환을 쿼리 플랜 캐시에 올리는 시간 (count 쿼리 포함)
+        private final long dryRunNanos; //파라미터를 채워 실행한 시간 (PreparedStatement, 결과 매핑), 안 했으면 0
+        private final String skipped; //dry-run을 건너뛴 이유, 실패했으면 예외 메시지
+
+        Entry(String method, Kind kind, long compileNanos, long dryRunNanos, String skipped) {
+            this.method = method;
+            this.kind = kind;
+            this.compileNanos = compileNanos;
+            this.dryRunNanos = dryRunNanos;
+            this.skipped = skipped;
+        }
+
+        public long getTotalNanos() {
+            return compileNanos + dryRunNanos;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package study.datajpa.audit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:audit;DB_CLOSE_DELAY=-1", //컨텍스트가 따로 뜨므로 DB도 따로, 같은 DB면 스키마와 시퀀스를 다시 만든다
+        "datajpa.audit.clock-skew=1ms"})
+@Transactional
+class AuditListenerTest {
+
+    @Autowired EntityManager em;
+
+    @Test
+    public void oneStampPerFlush() throws InterruptedException {
+        //given
+        Team team = new Team("auditTeam");
+        Member member = new Member("audit1", 10, team);
+        em.persist(team);
+        em.persist(member);
+        em.flush();
+
+        //when
+        Thread.sleep(5); //clock-skew보다 길게
+        Member next = new Member("audit2", 10);
+        em.persist(next);
+        member.setAge(11);
+        em.flush();
+
+        //then
+        assertThat(member.getCreatedDate()).isSameAs(team.getCreatedDate()); //같은 flush는 같은 시간
+        assertThat(member.getCreatedBy()).isNotNull().isEqualTo(next.getCreatedBy()); //테스트의 mock 요청마다 한번만 구한다
+        assertThat(next.getCreatedDate()).isAfter(member.getCreatedDate());
+        assertThat(member.getLastModifiedDate()).isSameAs(next.getCreatedDate()); //다음 flush의 수정도 같은 시간
+    }
+}
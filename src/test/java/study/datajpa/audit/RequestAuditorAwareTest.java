@@ -0,0 +1,50 @@
+package study.datajpa.audit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestAuditorAwareTest {
+
+    private final RequestAuditorAware auditorAware = new RequestAuditorAware();
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void authenticatedPrincipal() {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setUserPrincipal(() -> "kim");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        //when then
+        assertThat(auditorAware.getCurrentAuditor()).contains("kim");
+    }
+
+    @Test
+    public void headerIsIgnored() {
+        //given 인증 없이 헤더만 보낸 요청
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("X-User", "admin");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        //when
+        String auditor = auditorAware.getCurrentAuditor().get();
+
+        //then 요청마다 만든 id, 같은 요청 안에서는 같다
+        assertThat(auditor).isNotEqualTo("admin");
+        assertThat(auditorAware.getCurrentAuditor()).contains(auditor);
+    }
+
+    @Test
+    public void outsideRequest() {
+        assertThat(auditorAware.getCurrentAuditor()).contains(RequestAuditorAware.SYSTEM);
+    }
+}
@@ -0,0 +1,91 @@
+package study.datajpa.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.sql.SqlStatementMonitor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//무효화는 커밋 후에도 일어나므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+class MemberSnapshotCacheTest {
+
+    @Autowired MemberSnapshotCache memberSnapshotCache;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberInvalidationBus bus;
+    @Autowired SqlStatementMonitor sqlStatementMonitor;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final List<Member> members = new ArrayList<>();
+
+    //커밋된 회원이 나이 조건으로 벌크 연산하는 다른 테스트에 섞이지 않게 지운다
+    @AfterEach
+    void deleteMembers() {
+        memberRepository.deleteInBatch(members);
+    }
+
+    private Member save(Member member) {
+        Member saved = memberRepository.save(member);
+        members.add(saved);
+        return saved;
+    }
+
+    @Test
+    public void hotMemberIsReadOnce() {
+        //given
+        Member member = save(new Member("snapshot", 490));
+        memberSnapshotCache.get(member.getId());
+
+        //when then
+        MemberSnapshot snapshot = sqlStatementMonitor.assertAtMost(0, () -> memberSnapshotCache.get(member.getId()).get());
+        assertThat(snapshot.getUsername()).isEqualTo("snapshot");
+        assertThat(memberSnapshotCache.get(-1L)).isEmpty();
+    }
+
+    @Test
+    public void updateInvalidatesAllNodes() {
+        //given 같은 버스를 구독하는 다른 노드의 캐시
+        MemberSnapshotCache otherNode = new MemberSnapshotCache(memberRepository, bus, new SimpleMeterRegistry(), 100, Duration.ofMinutes(10));
+        Member member = save(new Member("beforeUpdate", 491));
+        memberSnapshotCache.get(member.getId());
+        otherNode.get(member.getId());
+
+        //when @PostUpdate
+        new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.findById(member.getId()).get().setUsername("afterUpdate");
+            return null;
+        });
+
+        //then
+        assertThat(memberSnapshotCache.get(member.getId()).get().getUsername()).isEqualTo("afterUpdate");
+        assertThat(otherNode.get(member.getId()).get().getUsername()).isEqualTo("afterUpdate");
+    }
+
+    @Test
+    public void removeAndBulkUpdateInvalidate() {
+        //given
+        Member removed = save(new Member("removed", 492));
+        Member aged = save(new Member("aged", 493));
+        memberSnapshotCache.get(removed.getId());
+        memberSnapshotCache.get(aged.getId());
+
+        //when @PostRemove, 벌크 연산
+        memberRepository.deleteById(removed.getId());
+        memberRepository.bulkAgePlus(493);
+
+        //then
+        assertThat(memberSnapshotCache.get(removed.getId())).isEmpty();
+        assertThat(memberSnapshotCache.get(aged.getId()).get().getAge()).isEqualTo(494);
+    }
+}
@@ -0,0 +1,57 @@
+package study.datajpa.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import study.datajpa.DataJpaApplication;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//fast 프로필은 스키마가 이미 있어야 하므로 기본 설정(create)으로 한번 띄운 DB에 다시 띄운다
+class FastStartupTest {
+
+    @Test
+    public void fastProfile() {
+        //given
+        run().close();
+
+        //when
+        try (ConfigurableApplicationContext context = run("--spring.profiles.active=fast")) {
+
+            //then
+            assertThat(context.getEnvironment().getProperty("spring.jpa.hibernate.ddl-auto")).isEqualTo("validate");
+            assertThat(context.getBean("&entityManagerFactory", AbstractEntityManagerFactoryBean.class).getBootstrapExecutor()).isNotNull();
+
+            MemberRepository memberRepository = context.getBean(MemberRepository.class);
+            memberRepository.save(new Member("0fast", 20));
+            assertThat(memberRepository.countByAge(20)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void startupTimeline() {
+        try (ConfigurableApplicationContext context = run()) {
+            StartupTimeline timeline = context.getBean(StartupTimeline.class);
+
+            assertThat(timeline.getPhases()).containsKeys("environment", "prepare", "bean-definitions", "beans", "web-server", "runners");
+            assertThat(timeline.slowestBeans(Integer.MAX_VALUE)).containsKey("entityManagerFactory");
+            assertThat(timeline.getTotalMillis()).isPositive();
+        }
+    }
+
+    //properties()는 기본값이라 application.yml보다 약하므로 커맨드라인 인자로 넘긴다
+    private static ConfigurableApplicationContext run(String... arguments) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:fast-startup;DB_CLOSE_DELAY=-1",
+                "--spring.main.web-application-type=none"));
+        args.addAll(Arrays.asList(arguments));
+        return new SpringApplicationBuilder(DataJpaApplication.class).run(args.toArray(new String[0]));
+    }
+}
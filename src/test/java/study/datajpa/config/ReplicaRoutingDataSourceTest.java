@@ -0,0 +1,82 @@
+package study.datajpa.config;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.TeamJpaRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//H2 DB 두개를 primary, replica로 띄워서 읽기 전용 트랜잭션이 replica로 가는지 확인
+//replica에만 있는 데이터가 보이면 replica에서 읽은 것이다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "datajpa.datasource.replicas[0].url=" + ReplicaRoutingDataSourceTest.REPLICA_URL,
+        "datajpa.datasource.replicas[0].username=sa"})
+public class ReplicaRoutingDataSourceTest {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired DataSource dataSource;
+    @Autowired TeamRepository teamRepository;
+    @Autowired TeamJpaRepository teamJpaRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManager em;
+    @Autowired DataSourceTargetCounter targetCounter;
+
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    public void copySchemaToReplica() {
+        //실제 replica는 복제로 스키마가 맞춰지지만 여기서는 primary의 DDL을 그대로 옮긴다
+        replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("drop all objects");
+        for (String ddl : new JdbcTemplate(dataSource).queryForList("script nodata", String.class)) {
+            replica.execute(ddl);
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        //given
+        teamRepository.save(new Team("primaryOnly"));
+        replica.update("insert into team (team_id, name) values (-1, 'replicaOnly')");
+        long replicaStatements = targetCounter.count("replica-0");
+
+        //when
+        List<Team> readOnly = teamJpaRepository.findAll(); //@Transactional(readOnly = true)
+        List<Team> readWrite = new TransactionTemplate(transactionManager).execute(status -> teamJpaRepository.findAll());
+
+        //then
+        assertThat(readOnly).extracting("name").containsExactly("replicaOnly");
+        assertThat(readWrite).extracting("name").containsExactly("primaryOnly");
+        assertThat(targetCounter.count("replica-0")).isEqualTo(replicaStatements + 1);
+        assertThat(targetCounter.count(ReplicaRoutingDataSource.PRIMARY)).isGreaterThan(0);
+    }
+
+    @Test
+    public void readOnlyTransactionSkipsSnapshotAndFlush() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.execute(status -> {
+            Session session = em.unwrap(Session.class);
+            assertThat(session.isDefaultReadOnly()).isTrue(); //로딩한 엔티티의 스냅샷을 만들지 않는다
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+            return null;
+        });
+    }
+}
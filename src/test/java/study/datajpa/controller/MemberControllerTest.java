@@ -0,0 +1,144 @@
+package study.datajpa.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.sql.SqlStatementMonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//캐시 무효화가 커밋 후에도 일어나므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired SqlStatementMonitor sqlStatementMonitor;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final List<Member> members = new ArrayList<>();
+    private final List<Team> teams = new ArrayList<>();
+
+    @AfterEach
+    void deleteMembers() {
+        memberRepository.deleteInBatch(members);
+        teamRepository.deleteInBatch(teams);
+    }
+
+    @Test
+    public void memberNotModified() throws Exception {
+        //given
+        Member member = save(new Member("etagBefore", 480));
+        MvcResult first = mockMvc.perform(get("/members/{id}", member.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when then 바뀌지 않았으면 304
+        mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        //when then 바뀌면 새 ETag와 본문
+        new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.findById(member.getId()).get().setUsername("etagAfter");
+            return null;
+        });
+        mockMvc.perform(get("/members/{id}", member.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string("etagAfter"));
+    }
+
+    @Test
+    public void memberNotFound() throws Exception {
+        //when then 없는 id면 /members/{id}, /members2/{id} 모두 404
+        mockMvc.perform(get("/members/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/members2/{id}", Long.MAX_VALUE))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void listNotModified() throws Exception {
+        //given
+        Team team = new Team("etagTeam");
+        teams.add(teamRepository.save(team));
+        save(new Member("etagList", 481, team));
+        String etag = listETag(null);
+
+        //when then 304면 버전 row 하나만 읽는다
+        sqlStatementMonitor.assertAtMost(1, () -> perform304(etag));
+
+        //when then 회원이 바뀌면 다시 조회한다
+        save(new Member("etagList2", 481));
+        String memberChanged = listETag(etag);
+        assertThat(memberChanged).isNotEqualTo(etag);
+
+        //when then 팀 이름이 바뀌어도 다시 조회한다
+        new TransactionTemplate(transactionManager).execute(status -> {
+            teamRepository.findById(team.getId()).get().setName("etagTeam2");
+            return null;
+        });
+        String teamChanged = listETag(memberChanged);
+        assertThat(teamChanged).isNotEqualTo(memberChanged);
+
+        //when then 롤백한 변경은 버전을 올리지 않는다
+        new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.save(new Member("etagRollback", 481));
+            memberRepository.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+        perform304(teamChanged);
+    }
+
+    //200 응답의 ETag
+    private String listETag(String ifNoneMatch) throws Exception {
+        MockHttpServletRequestBuilder request = get("/members").param("size", "1");
+        if (ifNoneMatch != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        String etag = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+
+    private void perform304(String etag) {
+        try {
+            mockMvc.perform(get("/members").param("size", "1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Member save(Member member) {
+        Member saved = memberRepository.save(member);
+        members.add(saved);
+        return saved;
+    }
+}
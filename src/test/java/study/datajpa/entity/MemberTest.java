@@ -11,6 +11,8 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 @Transactional
 @Rollback(false)
@@ -72,4 +74,19 @@ public class MemberTest {
         System.out.println("findMember.createdBy = " + findMember.getCreatedBy());
         System.out.println("findMember.lastModifiedBy = " + findMember.getLastModifiedBy());
     }
+
+    @Test
+    public void changeTeamMovesMember() {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Member member = new Member("member1", 10, teamA);
+
+        //when
+        member.changeTeam(teamB);
+
+        //then changeTeam이 양쪽 Team.members를 고친다 (바이트코드 향상 여부와 관계없이)
+        assertThat(teamA.getMembers()).isEmpty();
+        assertThat(teamB.getMembers()).containsExactly(member);
+    }
 }
@@ -0,0 +1,74 @@
+package study.datajpa.entity;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//2차 캐시는 커밋된 후에 반영되므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:team-cache;DB_CLOSE_DELAY=-1", //컨텍스트가 따로 뜨므로 DB도 따로, 같은 DB면 스키마와 시퀀스를 다시 만든다
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class TeamCacheTest {
+
+    @Autowired EntityManagerFactory emf;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MemberRepository memberRepository;
+
+    private final List<Team> teams = new ArrayList<>();
+    private final List<Member> members = new ArrayList<>();
+
+    //테스트마다 커밋하므로 만든 row를 지운다
+    @AfterEach
+    void deleteRows() {
+        memberRepository.deleteInBatch(members);
+        teamRepository.deleteInBatch(teams);
+    }
+
+    @Test
+    public void teamSecondLevelCache() {
+        //given
+        Team team = teamRepository.save(new Team("cachedTeam")); //커밋 시점에 캐시에 들어간다
+        teams.add(team);
+        Statistics statistics = statistics();
+
+        //when
+        teamRepository.findById(team.getId()); //트랜잭션(영속성 컨텍스트)이 달라도
+        teamRepository.findById(team.getId());
+
+        //then
+        assertThat(statistics.getDomainDataRegionStatistics("study.datajpa.entity.Team").getHitCount()).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(0); //DB 조회 없음
+    }
+
+    @Test
+    public void usernameQueryCache() {
+        //given
+        members.add(memberRepository.save(new Member("queryCached", 10)));
+        Statistics statistics = statistics();
+
+        //when
+        memberRepository.findByUsername("queryCached");
+        memberRepository.findByUsername("queryCached");
+
+        //then
+        assertThat(statistics.getQueryRegionStatistics("member-by-username").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1); //두번째는 쿼리 캐시 + 엔티티 캐시
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
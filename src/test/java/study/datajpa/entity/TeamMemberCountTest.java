@@ -0,0 +1,154 @@
+package study.datajpa.entity;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.repository.TeamRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//memberCount는 커밋 직전에 고쳐지므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+class TeamMemberCountTest {
+
+    @PersistenceContext EntityManager em;
+    @Autowired TeamRepository teamRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final List<Long> teamIds = new ArrayList<>();
+
+    //커밋된 회원과 팀이 다른 테스트에 남지 않게 지운다
+    @AfterEach
+    void deleteTeams() {
+        inTransaction(() -> {
+            em.createQuery("delete from Member m where m.username like '0count%'").executeUpdate();
+            em.createQuery("delete from Team t where t.id in :ids").setParameter("ids", teamIds).executeUpdate();
+        });
+    }
+
+    @Test
+    public void countFollowsInsertMoveAndDelete() {
+        //given
+        Long teamA = saveTeam("countA");
+        Long teamB = saveTeam("countB");
+        inTransaction(() -> {
+            Team team = em.find(Team.class, teamA);
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("0count" + i, 440, team));
+            }
+        });
+        assertThat(teamRepository.findMemberCount(teamA)).contains(3);
+
+        //when
+        inTransaction(() -> {
+            Member member = findMember("0count0");
+            member.changeTeam(em.find(Team.class, teamB));
+        });
+        inTransaction(() -> em.remove(findMember("0count1")));
+
+        //then
+        assertThat(teamRepository.findMemberCount(teamA)).contains(1);
+        assertThat(teamRepository.findMemberCount(teamB)).contains(1);
+        assertThat(teamRepository.findById(teamA).get().getMemberCount()).isEqualTo(1); //2차 캐시에 이전 값이 남지 않는다
+    }
+
+    @Test
+    public void changeTeamDoesNotLoadMembers() {
+        //given
+        Long teamA = saveTeam("countA");
+        Long teamB = saveTeam("countB");
+        inTransaction(() -> {
+            Team team = em.find(Team.class, teamA);
+            em.persist(new Member("0count0", 440, team));
+            em.persist(new Member("0count1", 440, team));
+        });
+
+        inTransaction(() -> {
+            Team from = em.find(Team.class, teamA);
+            Team to = em.find(Team.class, teamB);
+            Member member = findMember("0count0");
+
+            //when
+            member.changeTeam(to);
+
+            //then
+            assertThat(membersLoaded(from)).isFalse();
+            assertThat(membersLoaded(to)).isFalse();
+            assertThat(from.getMembers()).extracting("username").containsExactly("0count1"); //초기화할 때 나간 회원은 뺀다
+            assertThat(to.getMembers()).containsExactly(member); //큐에 쌓아둔 add
+        });
+    }
+
+    @Test
+    public void concurrentInsertsAreNotLost() throws Exception {
+        //given
+        Long teamId = saveTeam("countA");
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+
+        //when
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String username = "0count" + i;
+            futures.add(workers.submit(() -> inTransaction(() -> em.persist(new Member(username, 440, em.getReference(Team.class, teamId))))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        workers.shutdown();
+
+        //then
+        assertThat(teamRepository.findMemberCount(teamId)).contains(20);
+    }
+
+    @Test
+    public void recountAfterBulkUpdate() {
+        //given
+        Long teamId = saveTeam("countA");
+        inTransaction(() -> em.persist(new Member("0count0", 440, em.find(Team.class, teamId))));
+
+        //when 벌크 연산은 이벤트가 없어서 memberCount가 그대로
+        inTransaction(() -> em.createQuery("update Member m set m.team = null where m.username = '0count0'").executeUpdate());
+        assertThat(teamRepository.findMemberCount(teamId)).contains(1);
+        teamRepository.recountMembers(); //호출한 쪽에 트랜잭션이 없어도 된다
+
+        //then
+        assertThat(teamRepository.findMemberCount(teamId)).contains(0);
+    }
+
+    private Long saveTeam(String name) {
+        Long id = teamRepository.save(new Team(name)).getId();
+        teamIds.add(id);
+        return id;
+    }
+
+    //getMembers()는 초기화하므로 필드를 직접 본다, 바이트코드 향상이 켜져 있으면 필드 자체를 아직 읽지 않았을 수 있다
+    private boolean membersLoaded(Team team) {
+        return Hibernate.isPropertyInitialized(team, "members") && Hibernate.isInitialized(ReflectionTestUtils.getField(team, "members"));
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package study.datajpa.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.service.MemberImportService;
+import study.datajpa.sql.SqlStatementMonitor;
+import study.datajpa.sql.StatementScope;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class PooledSequenceGeneratorTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired SqlStatementMonitor sqlStatementMonitor;
+    @Autowired IdGeneratorMetrics idGeneratorMetrics;
+
+    @Test
+    public void thousandInsertsNeedAHandfulOfSequenceCalls() {
+        //given
+        List<Member> members = IntStream.range(0, 1000)
+                .mapToObj(i -> new Member("pooled" + i, 10))
+                .collect(Collectors.toList());
+        PooledSequenceGenerator generator = idGeneratorMetrics.generator("member_seq");
+        long callsBefore = generator.getSequenceCalls();
+        long avoidedBefore = generator.getSequenceCallsAvoided();
+
+        //when
+        StatementScope scope = sqlStatementMonitor.open("pooled");
+        try {
+            memberImportService.importMembers(members);
+        } finally {
+            scope.close();
+        }
+
+        //then 블록 100개씩, 이전 블록에 남은 id가 있으면 한번 더
+        long sequenceSql = scope.getShapes().entrySet().stream()
+                .filter(shape -> shape.getKey().contains("member_seq"))
+                .mapToLong(shape -> shape.getValue())
+                .sum();
+        assertThat(sequenceSql).isBetween(10L, 11L);
+        assertThat(generator.getSequenceCalls() - callsBefore).isEqualTo(sequenceSql);
+        assertThat(generator.getSequenceCallsAvoided() - avoidedBefore).isGreaterThanOrEqualTo(989);
+        assertThat(members).extracting("id").doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void separateSequencePerEntity() {
+        assertThat(idGeneratorMetrics.generators())
+                .extracting("sequenceName")
+                .contains("member_seq", "team_seq");
+        assertThat(idGeneratorMetrics.generator("team_seq").getBlockSize()).isEqualTo(100);
+    }
+}
@@ -0,0 +1,110 @@
+package study.datajpa.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//재시도는 트랜잭션 바깥에서 동작하므로 테스트 전체를 트랜잭션으로 묶지 않는다
+//@TestConfiguration 때문에 컨텍스트가 따로 뜨므로 DB도 따로 쓴다, 같은 DB면 스키마와 시퀀스를 다시 만들어 다른 컨텍스트의 id 블록과 겹친다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:optimistic-lock;DB_CLOSE_DELAY=-1")
+class OptimisticLockRetryTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired ConflictingRename conflictingRename;
+    @Autowired MeterRegistry registry;
+
+    @Test
+    public void retriesAfterConcurrentCommit() {
+        //given
+        Member member = memberRepository.save(new Member("retry", 10));
+        conflictingRename.conflictTimes(1);
+
+        //when 첫 시도 도중에 다른 트랜잭션이 먼저 커밋한다
+        conflictingRename.rename(member.getId(), "retried");
+
+        //then
+        Member renamed = memberRepository.findById(member.getId()).get();
+        assertThat(conflictingRename.attempts()).isEqualTo(2);
+        assertThat(renamed.getUsername()).isEqualTo("retried");
+        assertThat(renamed.getAge()).isEqualTo(11); //먼저 커밋한 변경을 덮어쓰지 않았다
+        assertThat(renamed.getVersion()).isEqualTo(2);
+        assertThat(registry.get("datajpa.lock.retries").tag("method", "ConflictingRename.rename").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        //given
+        Member member = memberRepository.save(new Member("exhausted", 10));
+        conflictingRename.conflictTimes(Integer.MAX_VALUE);
+
+        //when then
+        assertThatThrownBy(() -> conflictingRename.rename(member.getId(), "never"))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        assertThat(conflictingRename.attempts()).isEqualTo(3);
+        assertThat(memberRepository.findById(member.getId()).get().getAge()).isEqualTo(13);
+        assertThat(registry.get("datajpa.lock.retry.exhausted").tag("method", "ConflictingRename.rename").counter().count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ConflictingRename conflictingRename(MemberRepository memberRepository, PlatformTransactionManager transactionManager) {
+            return new ConflictingRename(memberRepository, transactionManager);
+        }
+    }
+
+    //처음 conflicts번은 읽은 다음 다른 트랜잭션(REQUIRES_NEW)이 같은 회원의 나이를 바꾸고 먼저 커밋한다
+    //재시도/트랜잭션 프록시(CGLIB)로 감싸지므로 상태는 메소드로만 접근한다
+    static class ConflictingRename {
+        private final MemberRepository memberRepository;
+        private final TransactionTemplate concurrentWriter;
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile int conflicts;
+
+        ConflictingRename(MemberRepository memberRepository, PlatformTransactionManager transactionManager) {
+            this.memberRepository = memberRepository;
+            this.concurrentWriter = new TransactionTemplate(transactionManager);
+            this.concurrentWriter.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+
+        public void conflictTimes(int conflicts) {
+            this.conflicts = conflicts;
+            attempts.set(0);
+        }
+
+        public int attempts() {
+            return attempts.get();
+        }
+
+        @RetryOnOptimisticLock(backoffMillis = 1)
+        @Transactional
+        public void rename(Long id, String username) {
+            Member member = memberRepository.findById(id).get();
+            if (attempts.incrementAndGet() <= conflicts) {
+                concurrentWriter.execute(status -> {
+                    Member concurrent = memberRepository.findById(id).get();
+                    concurrent.setAge(concurrent.getAge() + 1);
+                    return null;
+                });
+            }
+            member.setUsername(username);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package study.datajpa.projection;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberProjection;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.UsernameOnly;
+
+import javax.persistence.EntityManager;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Transactional
+class GeneratedProjectionTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired EntityManager em;
+
+    @Test
+    public void derivedQuery() {
+        //given
+        memberRepository.save(new Member("0projection", 10));
+        em.flush();
+        em.clear();
+
+        //when
+        List<UsernameOnly> result = memberRepository.findProjectionsByUsername("0projection");
+
+        //then
+        assertThat(result).hasSize(1);
+        assertThat(Proxy.isProxyClass(result.get(0).getClass())).isFalse();
+        assertThat(result.get(0)).isInstanceOf(ProjectionClass.of(UsernameOnly.class).getImplementation());
+        assertThat(result.get(0).getUsername()).isEqualTo("0projection");
+    }
+
+    @Test
+    public void nativeQuery() {
+        //given
+        Team team = new Team("0projectionTeam");
+        em.persist(team);
+        Member member = new Member("0projection", 10, team);
+        em.persist(member);
+        em.flush();
+        em.clear();
+
+        //when
+        List<MemberProjection> result = memberRepository
+                .findByNativeProjection(PageRequest.of(0, 1, Sort.by("username"))).getContent();
+
+        //then
+        MemberProjection projection = result.get(0);
+        assertThat(projection).isInstanceOf(ProjectionClass.of(MemberProjection.class).getImplementation());
+        assertThat(projection.getId()).isEqualTo(member.getId()); //bigint(BigInteger) -> Long
+        assertThat(projection.getUsername()).isEqualTo("0projection");
+        assertThat(projection.getTeamName()).isEqualTo("0projectionTeam");
+    }
+
+    @Test
+    public void aliasesOutOfOrderFailAtStartup() {
+        //when
+        ProjectionRepositoryFactoryBean<SwappedRepository, Member, Long> factoryBean = new ProjectionRepositoryFactoryBean<>(SwappedRepository.class);
+
+        //then
+        assertThatThrownBy(() -> factoryBean.createRepositoryFactory(em).getRepository(SwappedRepository.class))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("selects [username, id, teamName]");
+    }
+
+    @Test
+    public void selectAliases() {
+        assertThat(SelectAliases.of("select m.member_id as id, m.username, t.name as teamName from member m", true))
+                .containsExactly("id", "username", "teamName");
+        assertThat(SelectAliases.of("select coalesce(t.name, m.username) as name, (select count(*) from team) as teams from Member m", false))
+                .containsExactly("name", "teams");
+        assertThat(SelectAliases.of("select m.username from Member m", false)).containsExactly((String) null);
+    }
+
+    interface SwappedRepository extends Repository<Member, Long> {
+
+        @Query(value = "select m.username, m.member_id as id, t.name as teamName from member m left join team t on t.team_id = m.team_id",
+                nativeQuery = true)
+        List<MemberProjection> findSwapped();
+    }
+}
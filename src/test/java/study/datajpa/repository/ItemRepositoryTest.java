@@ -3,18 +3,96 @@ package study.datajpa.repository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.audit.AuditStamps;
 import study.datajpa.entity.Item;
 
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
 class ItemRepositoryTest {
 
     @Autowired ItemRepository itemRepository;
+    @Autowired EntityManager em;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired AuditStamps auditStamps;
 
     @Test
     public void test() {
         Item item = new Item("A");
         itemRepository.save(item);
     }
-}
\ No newline at end of file
+
+    @Test
+    @Transactional
+    public void findExistingIds() {
+        //given
+        itemRepository.save(new Item("exists1"));
+        itemRepository.save(new Item("exists2"));
+
+        //when
+        Set<String> existing = itemRepository.findExistingIds(Arrays.asList("exists1", "exists2", "exists3"));
+
+        //then
+        assertThat(existing).containsOnly("exists1", "exists2");
+    }
+
+    @Test
+    @Transactional
+    public void insertAll() {
+        //given
+        itemRepository.save(new Item("bulk1"));
+
+        //when
+        ItemInsertResult result = itemRepository.insertAll(Arrays.asList(
+                new Item("bulk1"), new Item("bulk2"), new Item("bulk3"), new Item("bulk2")));
+
+        //then
+        //중복 id가 있어도 예외 없이 나머지는 저장된다
+        assertThat(result.getInserted()).containsExactly("bulk2", "bulk3");
+        assertThat(result.getDuplicates()).containsExactly("bulk1");
+        assertThat(itemRepository.findExistingIds(Arrays.asList("bulk1", "bulk2", "bulk3"))).hasSize(3);
+        assertThat(itemRepository.findById("bulk3").get().isNew()).isFalse(); //createdDate가 채워져 있다
+    }
+
+    @Test
+    public void insertAllWithoutTransaction() {
+        //when 호출한 쪽에 트랜잭션이 없어도 된다
+        ItemInsertResult result = itemRepository.insertAll(Arrays.asList(new Item("standalone1"), new Item("standalone2")));
+
+        //then
+        assertThat(result.getInserted()).containsExactly("standalone1", "standalone2");
+        itemRepository.deleteInBatch(itemRepository.findAllById(Arrays.asList("standalone1", "standalone2")));
+    }
+
+    @Test
+    @Transactional
+    public void insertAllRetriesAfterFailedBatch() {
+        //given batch가 일부 row를 넣은 뒤 중복 키로 실패하는 상황 (조회 이후 다른 트랜잭션이 같은 id를 커밋)
+        JdbcTemplate failingBatch = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+                super.batchUpdate(sql, batchArgs);
+                throw new DuplicateKeyException("concurrent insert");
+            }
+        };
+        ItemRepositoryImpl repository = new ItemRepositoryImpl(em, failingBatch, auditStamps, 1000);
+
+        //when
+        ItemInsertResult result = repository.insertAll(Arrays.asList(new Item("retry1"), new Item("retry2")));
+
+        //then
+        //실패한 batch가 넣은 row는 savepoint로 되돌려지고 한건씩 다시 넣는다
+        assertThat(result.getInserted()).containsExactly("retry1", "retry2");
+        assertThat(result.getDuplicates()).isEmpty();
+        assertThat(itemRepository.findExistingIds(Arrays.asList("retry1", "retry2"))).hasSize(2);
+    }
+}
@@ -0,0 +1,87 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.cache.MemberSnapshot;
+import study.datajpa.cache.MemberSnapshotCache;
+import study.datajpa.entity.Member;
+import study.datajpa.service.MemberImportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//claim은 새 트랜잭션으로 커밋되므로 테스트 전체를 트랜잭션으로 묶지 않는다
+//claimNext는 DB의 모든 회원을 대상으로 하므로 이 테스트가 만든 회원만 있는 DB를 따로 쓴다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:claim;DB_CLOSE_DELAY=-1")
+class MemberClaimTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberSnapshotCache memberSnapshotCache;
+
+    private final List<Member> members = IntStream.range(0, 200)
+            .mapToObj(i -> new Member("claim" + i, 480))
+            .collect(Collectors.toList());
+
+    @AfterEach
+    void deleteMembers() {
+        memberRepository.deleteInBatch(members);
+    }
+
+    @Test
+    public void workersClaimDisjointBatches() throws Exception {
+        //given
+        memberImportService.importMembers(members);
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+
+        //when 작업자 4개가 더 가져갈 회원이 없을 때까지 10명씩 가져간다
+        List<Future<List<Member>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(workers.submit(() -> {
+                List<Member> claimed = new ArrayList<>();
+                List<Member> batch;
+                while (!(batch = memberRepository.claimNext(10)).isEmpty()) {
+                    claimed.addAll(batch);
+                }
+                return claimed;
+            }));
+        }
+        List<Member> claimed = new ArrayList<>();
+        for (Future<List<Member>> future : futures) {
+            claimed.addAll(future.get());
+        }
+        workers.shutdown();
+
+        //then
+        assertThat(claimed).extracting("id").doesNotHaveDuplicates();
+        assertThat(claimed).filteredOn(member -> member.getAge() == 480).hasSize(200);
+        assertThat(claimed).allSatisfy(member -> assertThat(member.getClaimedBy()).isNotNull());
+        assertThat(memberRepository.claimNext(10)).isEmpty(); //임대가 끝나기 전에는 다시 가져갈 수 없다
+    }
+
+    @Test
+    public void claimRefreshesETags() {
+        //given
+        memberImportService.importMembers(members);
+        Long id = members.get(0).getId();
+        MemberSnapshot before = memberSnapshotCache.get(id).get();
+        String listETag = memberRepository.findListFingerprint().getETag();
+
+        //when
+        List<Member> claimed = memberRepository.claimNext(1);
+
+        //then JDBC update도 MemberChangedEvent를 발행하므로 캐시된 version이 남지 않는다
+        assertThat(claimed).extracting("id").containsExactly(id);
+        assertThat(memberSnapshotCache.get(id).get().getETag()).isNotEqualTo(before.getETag());
+        assertThat(memberRepository.findListFingerprint().getETag()).isNotEqualTo(listETag);
+    }
+}
@@ -133,4 +133,23 @@ class MemberJpaRepositoryTest {
         //then
         assertThat(resultCount).isEqualTo(3);
     }
+
+    @Test
+    public void pagingAfter() {
+        //given
+        memberJpaRepository.save(new Member("member1", 77));
+        memberJpaRepository.save(new Member("member2", 77));
+        memberJpaRepository.save(new Member("member3", 77));
+        memberJpaRepository.save(new Member("member4", 77));
+        memberJpaRepository.save(new Member("member5", 77));
+
+        //when
+        List<Member> firstPage = memberJpaRepository.findByPage(77, 0, 3); //첫 페이지는 offset 0
+        Member last = firstPage.get(firstPage.size() - 1);
+        List<Member> nextPage = memberJpaRepository.findByPageAfter(77, last.getUsername(), last.getId(), 3);
+
+        //then
+        assertThat(firstPage).extracting("username").containsExactly("member5", "member4", "member3");
+        assertThat(nextPage).extracting("username").containsExactly("member2", "member1");
+    }
 }
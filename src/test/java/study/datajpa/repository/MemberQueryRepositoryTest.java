@@ -0,0 +1,112 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.datajpa.dto.MemberScreen;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+//async 쿼리는 다른 스레드의 트랜잭션에서 실행되므로 데이터를 커밋해둔다
+@SpringBootTest
+class MemberQueryRepositoryTest {
+
+    @Autowired MemberQueryRepository memberQueryRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired TeamRepository teamRepository;
+
+    private final List<Member> members = new ArrayList<>();
+    private Team team;
+
+    @AfterEach
+    void delete() {
+        memberRepository.deleteInBatch(members);
+        if (team != null) {
+            teamRepository.deleteInBatch(Collections.singletonList(team));
+        }
+    }
+
+    @Test
+    public void memberScreen() throws Exception {
+        //given
+        team = teamRepository.save(new Team("0screenTeam"));
+        members.add(memberRepository.save(new Member("0screen1", 10, team)));
+        members.add(memberRepository.save(new Member("0screen2", 10, team)));
+
+        //when
+        MemberScreen screen = memberQueryRepository.memberScreen(PageRequest.of(0, 2, Sort.by("username")))
+                .get(5, TimeUnit.SECONDS);
+
+        //then
+        assertThat(screen.getMembers().getContent()).extracting("username").containsExactly("0screen1", "0screen2");
+        assertThat(screen.getTeams()).filteredOn(summary -> summary.getName().equals("0screenTeam"))
+                .extracting("memberCount").containsExactly(2L);
+        assertThat(screen.getMemberCount()).isGreaterThanOrEqualTo(2);
+        assertThat(screen.getTeamCount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    public void queriesRunConcurrentlyInReadOnlyTransactions() {
+        //given 3개가 모두 도착해야 넘어가는 barrier, 차례로 실행되면 첫 쿼리가 기다리다 시간 초과한다
+        CyclicBarrier allRunning = new CyclicBarrier(3);
+        List<CompletableFuture<Boolean>> queries = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 3; i++) {
+            queries.add(memberQueryRepository.async(em -> {
+                try {
+                    allRunning.await(3, TimeUnit.SECONDS); //async의 기본 timeout(5s)보다 먼저
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    throw new IllegalStateException("queries did not overlap", e);
+                }
+                em.createQuery("select count(m) from Member m").getSingleResult();
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+            }));
+        }
+        CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[0])).join();
+
+        //then 세 쿼리가 동시에 실행 중이었고 모두 읽기 전용 트랜잭션
+        assertThat(queries).allSatisfy(query -> assertThat(query.join()).isTrue());
+    }
+
+    @Test
+    public void timeoutInterruptsQuery() throws Exception {
+        //given
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        //when
+        CompletableFuture<Object> slow = memberQueryRepository.async(em -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }, Duration.ofMillis(100));
+
+        //then
+        assertThatThrownBy(() -> slow.get(2, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -1,14 +1,22 @@
 package study.datajpa.repository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Session;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.*;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberCursor;
 import study.datajpa.dto.MemberDto;
 import study.datajpa.entity.Member;
 import study.datajpa.entity.Team;
+import study.datajpa.sql.NPlusOneSuspect;
+import study.datajpa.sql.SqlStatementMonitor;
+import study.datajpa.sql.StatementBudgetExceededException;
+import study.datajpa.sql.StatementScope;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -17,8 +25,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @Transactional
@@ -27,6 +38,8 @@ public class MemberRepositoryTest {
 
     @Autowired MemberRepository memberRepository;
     @Autowired TeamRepository teamRepository;
+    @Autowired SqlStatementMonitor sqlStatementMonitor;
+    @Autowired MeterRegistry meterRegistry;
     @PersistenceContext
     EntityManager em;
 
@@ -344,7 +357,175 @@ public class MemberRepositoryTest {
         List<MemberProjection> content = result.getContent();
         for (MemberProjection memberProjection : content) {
             System.out.println("memberProjection.username = " + memberProjection.getUsername());
-            System.out.println("memberProjection.teamname = " + memberProjection.getTeamname());
+            System.out.println("memberProjection.teamName = " + memberProjection.getTeamName());
         }
     }
+
+    @Test
+    public void keysetPaging() {
+        //given
+        for (int i = 1; i <= 5; i++) {
+            memberRepository.save(new Member("zz-keyset" + i, 10));
+        }
+
+        //when
+        //첫 페이지 대신 "zz-keyset" 이후부터 시작해서 다른 테스트 데이터와 섞이지 않게 한다
+        Slice<Member> first = memberRepository.findByKeyset(
+                MemberCursor.after(MemberCursor.Key.USERNAME, "zz-keyset", 0, 0L), 3);
+        Member last = first.getContent().get(first.getContent().size() - 1);
+        String nextCursor = MemberCursor.after(MemberCursor.Key.USERNAME, last).encode(); //클라이언트에 내려주는 토큰
+        Slice<Member> second = memberRepository.findByKeyset(MemberCursor.decode(nextCursor), 3);
+
+        //then
+        assertThat(first.getContent()).extracting("username")
+                .containsExactly("zz-keyset1", "zz-keyset2", "zz-keyset3");
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.getContent()).extracting("username")
+                .containsExactly("zz-keyset4", "zz-keyset5");
+        assertThat(second.hasNext()).isFalse();
+    }
+
+    @Test
+    @Rollback //username이 null인 회원을 남기지 않는다
+    public void keysetPagingWithNullUsername() {
+        //given
+        Member null1 = memberRepository.save(new Member(null, 10));
+        Member null2 = memberRepository.save(new Member(null, 10));
+        Member null3 = memberRepository.save(new Member(null, 10));
+
+        //when
+        Slice<Member> first = memberRepository.findByKeyset(MemberCursor.first(MemberCursor.Key.USERNAME), 2);
+        Member last = first.getContent().get(first.getContent().size() - 1);
+        String nextCursor = MemberCursor.after(MemberCursor.Key.USERNAME, last).encode();
+        Slice<Member> second = memberRepository.findByKeyset(MemberCursor.decode(nextCursor), 2);
+
+        //then
+        //null은 맨 앞에 id 순으로 오고, 그 다음 페이지에서 이름 있는 회원으로 이어진다
+        assertThat(first.getContent()).containsExactly(null1, null2);
+        assertThat(MemberCursor.decode(nextCursor).getUsername()).isNull();
+        assertThat(second.getContent().get(0)).isEqualTo(null3);
+        assertThat(second.getContent().get(1).getUsername()).isNotNull();
+    }
+
+    @Test
+    public void streamMemberDto() {
+        //given
+        Team team = new Team("streamTeam");
+        em.persist(team);
+        em.persist(new Member("stream1", 10, team));
+        em.persist(new Member("stream2", 10, team));
+        em.flush();
+        em.clear();
+
+        //when
+        List<MemberDto> result;
+        try (Stream<MemberDto> stream = memberRepository.streamMemberDto(1)) { //스트림은 꼭 닫아주기
+            result = stream
+                    .filter(dto -> dto.getUsername().startsWith("stream"))
+                    .collect(Collectors.toList());
+        }
+
+        //then
+        assertThat(result).extracting("username").containsExactly("stream1", "stream2");
+        assertThat(result).extracting("teamName").containsOnly("streamTeam");
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0); //엔티티를 만들지 않았다
+    }
+
+    @Test
+    public void findMemberDtoSlice() {
+        //given
+        Team team = new Team("zzzDtoSliceTeam"); //teamName desc 정렬 시 가장 앞에 오도록
+        em.persist(team);
+        em.persist(new Member("dtoSlice1", 10, team));
+        em.persist(new Member("dtoSlice2", 10, team));
+        em.persist(new Member("dtoSlice3", 10, team));
+        em.flush();
+        em.clear();
+
+        //when
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Order.desc("teamName"), Sort.Order.asc("username")));
+        Slice<MemberDto> slice = sqlStatementMonitor.assertAtMost(1, () -> memberRepository.findMemberDtoSlice(pageRequest));
+
+        //then
+        assertThat(slice.getContent()).extracting("username").containsExactly("dtoSlice1", "dtoSlice2");
+        assertThat(slice.getContent()).extracting("teamName").containsOnly("zzzDtoSliceTeam");
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(em.unwrap(Session.class).getStatistics().getEntityCount()).isEqualTo(0); //엔티티를 만들지 않았다
+        assertThatThrownBy(() -> memberRepository.findMemberDtoSlice(PageRequest.of(0, 2, Sort.by("createdDate"))))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class); //리포지토리 예외 변환
+    }
+
+    @Test
+    public void fetchJoinStatementBudget() {
+        //given
+        Team teamA = new Team("budgetTeamA");
+        Team teamB = new Team("budgetTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("budget1", 10, teamA));
+        em.persist(new Member("budget2", 10, teamB));
+        em.flush();
+        em.clear();
+
+        //when then
+        //fetch join은 팀까지 쿼리 한번으로 가져와야 한다
+        sqlStatementMonitor.assertAtMost(1, () -> {
+            for (Member member : memberRepository.findMemberFetchJoin()) {
+                if (member.getTeam() != null) {
+                    member.getTeam().getName();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void detectNPlusOne() {
+        //given
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Team team = new Team("nPlusOneTeam" + i);
+            em.persist(team);
+            em.persist(new Member("nPlusOne" + i, 10, team));
+            names.add("nPlusOne" + i);
+        }
+        em.flush();
+        em.clear();
+
+        //when
+        StatementScope scope;
+        try (StatementScope opened = sqlStatementMonitor.open("lazy team")) {
+            scope = opened;
+            for (Member member : memberRepository.findByNames(names)) {
+                member.getTeam().getName(); //팀마다 select
+            }
+        }
+
+        //then
+        assertThat(scope.getCount()).isEqualTo(6); //1 + N
+        assertThat(scope.getNPlusOneSuspects()).hasSize(1);
+        NPlusOneSuspect suspect = scope.getNPlusOneSuspects().get(0);
+        assertThat(suspect.getShape()).contains("from team");
+        assertThat(suspect.getCallSite()).contains("MemberRepositoryTest.detectNPlusOne");
+        assertThatThrownBy(() -> sqlStatementMonitor.assertAtMost(1, () -> {
+            em.clear();
+            memberRepository.findByNames(names).forEach(member -> member.getTeam().getName());
+        })).isInstanceOf(StatementBudgetExceededException.class);
+    }
+
+    @Test
+    public void lockWaitIsTimed() {
+        //given
+        memberRepository.save(new Member("lockWait", 10));
+        em.flush();
+        em.clear();
+
+        //when
+        List<Member> locked = memberRepository.findLockByUsername("lockWait"); //select ... for update
+
+        //then
+        assertThat(locked).hasSize(1);
+        assertThat(meterRegistry.get("datajpa.lock.wait").tag("method", "findLockByUsername").timer().count())
+                .isGreaterThanOrEqualTo(1);
+    }
 }
+
@@ -0,0 +1,85 @@
+package study.datajpa.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class PageCounterTest {
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired PageCounter pageCounter;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void cachedCount() {
+        //given
+        for (int i = 0; i < 5; i++) {
+            memberRepository.save(new Member("count" + i, 61));
+        }
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        CountQuery countQuery = CountQuery.of("Member.countByAge:61", () -> memberRepository.countByAge(61));
+        double before = executed();
+
+        //when
+        Page<Member> page1 = pageCounter.toPage(memberRepository.findSliceByAge(61, pageRequest), CountStrategy.CACHED, countQuery);
+        Page<Member> page2 = pageCounter.toPage(memberRepository.findSliceByAge(61, pageRequest), CountStrategy.CACHED, countQuery);
+
+        //then
+        assertThat(page1.getTotalElements()).isEqualTo(5);
+        assertThat(page2.getTotalElements()).isEqualTo(5);
+        assertThat(executed() - before).isEqualTo(1); //두번째는 캐시 사용
+
+        //Member가 저장되면 캐시가 무효화된다
+        memberRepository.save(new Member("count5", 61));
+        Page<Member> page3 = pageCounter.toPage(memberRepository.findSliceByAge(61, pageRequest), CountStrategy.CACHED, countQuery);
+        assertThat(page3.getTotalElements()).isEqualTo(6);
+        assertThat(executed() - before).isEqualTo(2);
+    }
+
+    @Test
+    public void bulkUpdateInvalidatesCache() {
+        //given
+        memberRepository.save(new Member("count1", 62));
+        memberRepository.save(new Member("count2", 62));
+        CountQuery countQuery = CountQuery.of("Member.countByAge:62", () -> memberRepository.countByAge(62));
+        pageCounter.count(CountStrategy.CACHED, countQuery);
+        double before = executed();
+
+        //when
+        memberRepository.bulkAgePlus(1000); //대상 row가 없어도 벌크 연산이면 무효화
+        pageCounter.count(CountStrategy.CACHED, countQuery);
+
+        //then
+        assertThat(executed() - before).isEqualTo(1);
+    }
+
+    @Test
+    public void lastPageSkipsCount() {
+        //given
+        memberRepository.save(new Member("count1", 63));
+        memberRepository.save(new Member("count2", 63));
+        memberRepository.save(new Member("count3", 63));
+        double before = executed();
+
+        //when
+        Page<Member> page = pageCounter.toPage(memberRepository.findSliceByAge(63, PageRequest.of(0, 10)), CountStrategy.EXACT,
+                CountQuery.of("Member.countByAge:63", () -> memberRepository.countByAge(63)));
+
+        //then
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(executed() - before).isEqualTo(0); //마지막 페이지라서 count 쿼리 생략
+    }
+
+    private double executed() {
+        return meterRegistry.get("datajpa.count.queries").tag("result", "executed").counter().count();
+    }
+}
@@ -0,0 +1,139 @@
+package study.datajpa.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.dto.MemberCursor;
+import study.datajpa.entity.Member;
+import study.datajpa.sql.SqlStatementMonitor;
+import study.datajpa.sql.StatementScope;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+//리포지토리 쿼리를 실행해서 나간 SQL마다 H2 EXPLAIN을 돌려 테이블이나 인덱스 전체를 읽는 쿼리가 없는지 확인한다
+//리포지토리 인터페이스에 메서드를 추가하면 INDEXED(인덱스로 읽어야 함) 또는 FULL_SCAN(전체를 읽는 것이 목적)에 넣어야 통과한다
+@SpringBootTest
+@Transactional
+class QueryPlanTest {
+
+    //H2 계획에서 조건 없이 읽는 테이블: /* PUBLIC.MEMBER.tableScan */ 또는 /* PUBLIC.MEMBER_USERNAME_IDX */ (인덱스 전체)
+    //인덱스 조건이 있으면 /* PUBLIC.MEMBER_USERNAME_IDX: USERNAME = ?1 */
+    private static final Pattern FULL_SCAN_PLAN = Pattern.compile("/\\* PUBLIC\\.\\w+(\\.tableScan)? \\*/");
+
+    //조건 없이 전체(또는 전체의 한 페이지)를 읽는 메서드
+    //claimNext는 임대가 없는 회원을 id 순서로 n명 찾으면 멈춘다 (대부분의 회원은 임대가 없다)
+    private static final Set<String> FULL_SCAN = new HashSet<>(Arrays.asList(
+            "findUsernameList", "findMemberDto", "findSliceBy", "findMemberFetchJoin", "findAll",
+            "findMemberEntityGraph", "findByNativeProjection", "findSliceByNativeProjection",
+            "findMemberCustom", "findMemberDtoSlice", "streamMemberDto",
+            "recountMembers", "claimNext"));
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberJpaRepository memberJpaRepository;
+    @Autowired TeamRepository teamRepository;
+    @Autowired SqlStatementMonitor monitor;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private Map<String, Runnable> indexed() {
+        Member member = new Member("plan", 10);
+        memberRepository.save(member);
+        Map<String, Runnable> queries = new LinkedHashMap<>();
+        queries.put("findByUsernameAndAgeGreaterThan", () -> memberRepository.findByUsernameAndAgeGreaterThan("plan", 5));
+        queries.put("findByUsername", () -> memberRepository.findByUsername("plan"));
+        queries.put("findUser", () -> memberRepository.findUser("plan", 10));
+        queries.put("findByNames", () -> memberRepository.findByNames(Arrays.asList("plan", "plan2")));
+        queries.put("findListByUsername", () -> memberRepository.findListByUsername("plan"));
+        queries.put("findMemberByUsername", () -> memberRepository.findMemberByUsername("plan"));
+        queries.put("findOptionalByUsername", () -> memberRepository.findOptionalByUsername("plan"));
+        queries.put("findByAge", () -> memberRepository.findByAge(10, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"))));
+        queries.put("findSliceByAge", () -> memberRepository.findSliceByAge(10, PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "username"))));
+        queries.put("countByAge", () -> memberRepository.countByAge(10));
+        queries.put("bulkAgePlus", () -> memberRepository.bulkAgePlus(500));
+        queries.put("findEntityGraphByUsername", () -> memberRepository.findEntityGraphByUsername("plan"));
+        queries.put("findReadOnlyByUsername", () -> memberRepository.findReadOnlyByUsername("plan"));
+        queries.put("findLockByUsername", () -> memberRepository.findLockByUsername("plan"));
+        queries.put("findProjectionsByUsername", () -> memberRepository.findProjectionsByUsername("plan"));
+        queries.put("findProjectionsByAgeGreaterThanEqual", () -> memberRepository.findProjectionsByAgeGreaterThanEqual(500, UsernameOnly.class));
+        queries.put("findByNativeQuery", () -> memberRepository.findByNativeQuery("plan"));
+        queries.put("findByKeyset", () -> {
+            memberRepository.findByKeyset(MemberCursor.after(MemberCursor.Key.USERNAME, member), 3);
+            memberRepository.findByKeyset(MemberCursor.after(MemberCursor.Key.AGE, member), 3);
+        });
+        queries.put("findListFingerprint", () -> memberRepository.findListFingerprint());
+        queries.put("findMemberCount", () -> teamRepository.findMemberCount(1L));
+        queries.put("findStatistics", () -> teamRepository.findStatistics(1L));
+        queries.put("MemberJpaRepository", () -> {
+            memberJpaRepository.findByUsernameAndAgeGreaterThan("plan", 5);
+            memberJpaRepository.findByUsername("plan");
+            memberJpaRepository.findByPage(10, 0, 3);
+            memberJpaRepository.findByPageAfter(10, "plan", member.getId(), 3);
+            memberJpaRepository.totalCount(10);
+            memberJpaRepository.bulkAgePlus(500);
+        });
+        return queries;
+    }
+
+    @Test
+    public void repositoryQueriesUseIndexes() {
+        for (Map.Entry<String, Runnable> query : indexed().entrySet()) {
+            for (String sql : executedSql(query.getValue())) {
+                String plan = explain(sql);
+                if (FULL_SCAN_PLAN.matcher(plan).find()) {
+                    fail(query.getKey() + " reads the whole table:\n" + plan);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void everyQueryMethodIsChecked() {
+        Set<String> checked = new HashSet<>(indexed().keySet());
+        checked.addAll(FULL_SCAN);
+
+        List<String> unchecked = Stream.of(MemberRepository.class, MemberRepositoryCustom.class, TeamRepository.class,
+                TeamRepositoryCustom.class)
+                .flatMap(repository -> Arrays.stream(repository.getDeclaredMethods()))
+                .map(Method::getName)
+                .filter(name -> !checked.contains(name))
+                .distinct()
+                .collect(Collectors.toList());
+        assertThat(unchecked).as("add to INDEXED or FULL_SCAN in QueryPlanTest").isEmpty();
+    }
+
+    //select/update/delete만, insert와 시퀀스 조회는 빼고
+    private List<String> executedSql(Runnable query) {
+        StatementScope scope = monitor.open("plan");
+        try {
+            query.run();
+        } finally {
+            scope.close();
+        }
+        return scope.getShapes().keySet().stream()
+                .filter(sql -> sql.startsWith("select") || sql.startsWith("update") || sql.startsWith("delete"))
+                .filter(sql -> !sql.contains("next value for"))
+                .collect(Collectors.toList());
+    }
+
+    //바인딩 값은 계획에 영향이 없으므로 null로 채운다 (EXPLAIN은 실행하지 않는다)
+    private String explain(String sql) {
+        String explain = "explain " + sql.replace("in (?...)", "in (?, ?)");
+        Object[] parameters = new Object[(int) explain.chars().filter(c -> c == '?').count()];
+        return String.join("\n", jdbcTemplate.queryForList(explain, String.class, parameters));
+    }
+}
@@ -0,0 +1,88 @@
+package study.datajpa.search;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.UsernameMatch;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+//인덱스는 커밋된 변경만 반영하므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+class UsernameSearchTest {
+
+    @Autowired UsernameSearch usernameSearch;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void deleteMembers() {
+        memberRepository.deleteAll(memberRepository.findAll().stream()
+                .filter(member -> member.getUsername() != null && member.getUsername().toLowerCase().contains("0search"))
+                .collect(Collectors.toList())); //엔티티로 지워야 인덱스에서도 빠진다
+    }
+
+    @Test
+    public void prefixThenSubstring() {
+        //given
+        Member alpha = memberRepository.save(new Member("0searchAlpha", 430));
+        Member beta = memberRepository.save(new Member("0searchBeta", 430));
+        Member inner = memberRepository.save(new Member("x0SEARCHgamma", 430));
+
+        //when
+        //then 대소문자 구분 없음, 앞부분 일치(username 순서) 다음에 중간 포함
+        assertThat(usernameSearch.search("0search", 10))
+                .extracting("id", "username", "prefix")
+                .containsExactly(
+                        tuple(alpha.getId(), "0searchAlpha", true),
+                        tuple(beta.getId(), "0searchBeta", true),
+                        tuple(inner.getId(), "x0SEARCHgamma", false));
+        assertThat(usernameSearch.search("0searchb", 10)).extracting("id").containsExactly(beta.getId());
+        assertThat(usernameSearch.search("0search", 1)).hasSize(1);
+    }
+
+    @Test
+    public void followsCommittedChanges() {
+        //given
+        Member member = memberRepository.save(new Member("0searchBefore", 430));
+
+        //when
+        new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.findById(member.getId()).get().setUsername("0searchAfter");
+            return null;
+        });
+        new TransactionTemplate(transactionManager).execute(status -> {
+            memberRepository.save(new Member("0searchRolledBack", 430));
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //then
+        assertThat(usernameSearch.search("0searchBefore", 10)).isEmpty();
+        assertThat(usernameSearch.search("0searchAfter", 10)).extracting(UsernameMatch::getId).containsExactly(member.getId());
+        assertThat(usernameSearch.search("0searchRolled", 10)).isEmpty(); //롤백된 회원은 없다
+
+        memberRepository.deleteById(member.getId());
+        assertThat(usernameSearch.search("0searchAfter", 10)).isEmpty();
+    }
+
+    @Test
+    public void rebuildMatchesIndex() {
+        //given
+        Member member = memberRepository.save(new Member("0searchRebuild", 430));
+
+        //when
+        usernameSearch.rebuild();
+
+        //then
+        assertThat(usernameSearch.search("searchrebuild", 10)).extracting(UsernameMatch::getId).containsExactly(member.getId());
+    }
+}
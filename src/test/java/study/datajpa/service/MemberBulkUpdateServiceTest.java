@@ -0,0 +1,98 @@
+package study.datajpa.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.entity.Member;
+import study.datajpa.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//청크마다 커밋되므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+class MemberBulkUpdateServiceTest {
+
+    @Autowired MemberBulkUpdateService memberBulkUpdateService;
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManagerFactory emf;
+    @Autowired EntityManager em;
+
+    //커밋된 회원이 나이 조건으로 벌크 연산하는 다른 테스트에 섞이지 않게 지운다
+    @AfterEach
+    void deleteMembers() {
+        new TransactionTemplate(transactionManager).execute(status ->
+                em.createQuery("delete from Member m where m.username like '0bulk%'").executeUpdate());
+    }
+
+    //evictsOnlyUpdatedMembers(age >= 460)가 먼저 실행되어도 영향이 없도록 더 큰 나이를 사용
+    @Test
+    public void bulkAgePlusInChunks() {
+        //given
+        memberImportService.importMembers(IntStream.range(0, 25).mapToObj(i -> new Member("0bulk" + i, 470)));
+        List<BulkUpdateReport> progress = new ArrayList<>();
+
+        //when
+        BulkUpdateReport report = memberBulkUpdateService.bulkAgePlus(470, 10, progress::add);
+
+        //then
+        assertThat(report.getChunks()).isEqualTo(3);
+        assertThat(report.getRows()).isEqualTo(25);
+        assertThat(progress).extracting("rows").containsExactly(10L, 20L, 25L);
+        assertThat(memberRepository.countByAge(471)).isEqualTo(25);
+    }
+
+    @Test
+    public void evictsOnlyUpdatedMembers() {
+        //given
+        Member target = memberRepository.save(new Member("0bulkTarget", 460));
+        Member other = memberRepository.save(new Member("0bulkOther", 10));
+        TransactionTemplate caller = new TransactionTemplate(transactionManager);
+
+        caller.execute(status -> {
+            Member loaded = em.find(Member.class, target.getId()); //호출한 쪽 영속성 컨텍스트에 올려둔다
+            em.find(Member.class, other.getId());
+            assertThat(emf.getCache().contains(Member.class, target.getId())).isTrue();
+            assertThat(emf.getCache().contains(Member.class, other.getId())).isTrue();
+
+            //when
+            memberBulkUpdateService.bulkAgePlus(460);
+
+            //then
+            assertThat(em.contains(loaded)).isTrue();
+            assertThat(loaded.getAge()).isEqualTo(461); //DB 값으로 다시 읽었다
+            assertThat(emf.getCache().contains(Member.class, other.getId())).isTrue(); //바뀌지 않은 회원은 캐시에 남는다
+            return null;
+        });
+    }
+
+    @Test
+    public void keepsCallerChanges() {
+        //given
+        Member target = memberRepository.save(new Member("0bulkPending", 450));
+        TransactionTemplate caller = new TransactionTemplate(transactionManager);
+
+        //when 호출한 쪽이 바꾸고 flush하지 않은 상태에서 벌크 연산
+        caller.execute(status -> {
+            Member loaded = em.find(Member.class, target.getId());
+            loaded.setUsername("0bulkPendingRenamed");
+            memberBulkUpdateService.bulkAgePlus(450);
+            return null;
+        });
+
+        //then
+        Member updated = memberRepository.findById(target.getId()).get();
+        assertThat(updated.getUsername()).isEqualTo("0bulkPendingRenamed");
+        assertThat(updated.getAge()).isEqualTo(451);
+    }
+}
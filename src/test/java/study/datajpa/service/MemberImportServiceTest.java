@@ -0,0 +1,116 @@
+package study.datajpa.service;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//@TestConfiguration 때문에 컨텍스트가 따로 뜨므로 DB도 따로 쓴다, 같은 DB면 스키마와 시퀀스를 다시 만들어 다른 컨텍스트의 id 블록과 겹친다
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:member-import;DB_CLOSE_DELAY=-1")
+@Transactional
+class MemberImportServiceTest {
+
+    @Autowired MemberImportService memberImportService;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberInsertCounter insertCounter;
+
+    @Test
+    public void batchInsert() {
+        //given
+        insertCounter.reset();
+
+        //when
+        ImportReport report = memberImportService.importMembers(
+                IntStream.range(0, 1000).mapToObj(i -> new Member("import" + i, 301)), 100);
+
+        //then
+        assertThat(report.getRows()).isEqualTo(1000);
+        assertThat(report.getFlushes()).isEqualTo(10);
+        assertThat(insertCounter.rows.get()).isEqualTo(1000); //addBatch
+        assertThat(insertCounter.statements.get()).isEqualTo(10); //executeBatch, N / batchSize
+        assertThat(memberRepository.countByAge(301)).isEqualTo(1000);
+    }
+
+    @Test
+    public void importTeamsAndMembers() {
+        //given
+        List<Team> teams = new ArrayList<>();
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Team team = new Team("importTeam" + i);
+            teams.add(team);
+            for (int j = 0; j < 5; j++) {
+                members.add(new Member("import" + i + "-" + j, 302, team));
+            }
+        }
+
+        //when
+        ImportReport report = memberImportService.importAll(teams, members);
+
+        //then
+        assertThat(report.getRows()).isEqualTo(18);
+        assertThat(memberRepository.countByAge(302)).isEqualTo(15);
+        assertThat(memberRepository.findByUsername("import2-4").get(0).getTeam().getName()).isEqualTo("importTeam2");
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        MemberInsertCounter memberInsertCounter() {
+            return new MemberInsertCounter();
+        }
+    }
+
+    //p6spy 리스너로 실제 JDBC 호출 횟수를 센다
+    static class MemberInsertCounter extends SimpleJdbcEventListener {
+        final AtomicInteger rows = new AtomicInteger();
+        final AtomicInteger statements = new AtomicInteger();
+
+        void reset() {
+            rows.set(0);
+            statements.set(0);
+        }
+
+        @Override
+        public void onAfterAddBatch(PreparedStatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+            if (isMemberInsert(statementInformation)) {
+                rows.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos, int[] updateCounts, SQLException e) {
+            if (isMemberInsert(statementInformation)) {
+                statements.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+            if (isMemberInsert(statementInformation)) {
+                rows.incrementAndGet();
+                statements.incrementAndGet();
+            }
+        }
+
+        private static boolean isMemberInsert(StatementInformation statementInformation) {
+            return statementInformation.getSql().trim().toLowerCase().startsWith("insert into member");
+        }
+    }
+}
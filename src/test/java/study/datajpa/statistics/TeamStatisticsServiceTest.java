@@ -0,0 +1,171 @@
+package study.datajpa.statistics;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.datajpa.dto.TeamStatistics;
+import study.datajpa.entity.Member;
+import study.datajpa.entity.Team;
+import study.datajpa.repository.MemberRepository;
+import study.datajpa.repository.TeamRepository;
+import study.datajpa.service.MemberBulkUpdateService;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+//통계는 커밋 직전에 반영되므로 테스트 전체를 트랜잭션으로 묶지 않는다
+@SpringBootTest
+class TeamStatisticsServiceTest {
+
+    @PersistenceContext EntityManager em;
+    @Autowired TeamRepository teamRepository;
+    @Autowired MemberRepository memberRepository;
+    @Autowired MemberBulkUpdateService bulkUpdateService;
+    @Autowired TeamStatisticsService teamStatisticsService;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private final List<Long> teamIds = new ArrayList<>();
+
+    @AfterEach
+    void deleteTeams() {
+        inTransaction(() -> {
+            em.createQuery("delete from Member m where m.username like '0stats%'").executeUpdate();
+            em.createQuery("delete from TeamAgeCount c where c.teamId in :ids").setParameter("ids", teamIds).executeUpdate();
+            em.createQuery("delete from Team t where t.id in :ids").setParameter("ids", teamIds).executeUpdate();
+        });
+    }
+
+    @Test
+    public void statisticsFollowMemberChanges() {
+        //given
+        Long teamA = saveTeam("statsA");
+        Long teamB = saveTeam("statsB");
+        inTransaction(() -> {
+            Team team = em.find(Team.class, teamA);
+            em.persist(new Member("0stats1", 10, team));
+            em.persist(new Member("0stats2", 15, team));
+            em.persist(new Member("0stats3", 27, team));
+        });
+        assertThat(teamRepository.findStatistics(teamA).getAgeHistogram()).containsExactly(entry(10, 2L), entry(20, 1L));
+
+        //when
+        inTransaction(() -> {
+            findMember("0stats3").changeTeam(em.find(Team.class, teamB));
+            findMember("0stats2").setAge(31);
+        });
+
+        //then
+        TeamStatistics a = teamRepository.findStatistics(teamA);
+        assertThat(a.getMemberCount()).isEqualTo(2);
+        assertThat(a.getAgeSum()).isEqualTo(41);
+        assertThat(a.getAverageAge()).isEqualTo(20.5);
+        assertThat(a.getMinAge()).isEqualTo(10);
+        assertThat(a.getMaxAge()).isEqualTo(31);
+        assertThat(a.getAgeHistogram()).containsExactly(entry(10, 1L), entry(30, 1L));
+        assertThat(teamRepository.findStatistics(teamB).getAgeHistogram()).containsExactly(entry(20, 1L));
+    }
+
+    @Test
+    public void bulkAgePlusMovesAges() {
+        //given 다른 회원은 바뀌지 않게 큰 나이
+        Long teamId = saveTeam("statsA");
+        inTransaction(() -> {
+            Team team = em.find(Team.class, teamId);
+            em.persist(new Member("0stats1", 450, team));
+            em.persist(new Member("0stats2", 470, team));
+        });
+
+        //when
+        memberRepository.bulkAgePlus(460); //JPQL 한번
+        bulkUpdateService.bulkAgePlus(471); //청크
+
+        //then
+        TeamStatistics statistics = teamRepository.findStatistics(teamId);
+        assertThat(statistics.getMemberCount()).isEqualTo(2);
+        assertThat(statistics.getMinAge()).isEqualTo(450);
+        assertThat(statistics.getMaxAge()).isEqualTo(472);
+        assertThat(teamStatisticsService.reconcile().getRepaired()).isZero(); //회원 테이블과 같다
+    }
+
+    @Test
+    public void reconcileRepairsDrift() {
+        //given 이벤트 없이 바꾼 회원
+        Long teamId = saveTeam("statsA");
+        inTransaction(() -> em.persist(new Member("0stats1", 20, em.find(Team.class, teamId))));
+        jdbcTemplate.update("update member set age = 35 where username = '0stats1'");
+
+        //when
+        TeamStatisticsReport report = teamStatisticsService.reconcile();
+
+        //then
+        assertThat(report.getRepaired()).isGreaterThanOrEqualTo(1);
+        TeamStatistics statistics = teamRepository.findStatistics(teamId);
+        assertThat(statistics.getMemberCount()).isEqualTo(1);
+        assertThat(statistics.getAgeHistogram()).containsExactly(entry(30, 1L));
+        assertThat(teamRepository.findMemberCount(teamId)).contains(1);
+    }
+
+    @Test
+    public void pendingDeltasAreReleased() {
+        //given
+        Long teamId = saveTeam("statsA");
+
+        //when 커밋, 롤백
+        inTransaction(() -> em.persist(new Member("0stats1", 10, em.find(Team.class, teamId))));
+        new TransactionTemplate(transactionManager).execute(status -> {
+            em.persist(new Member("0stats2", 10, em.find(Team.class, teamId)));
+            em.flush();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //then 세션별로 모아둔 증감이 남지 않는다
+        assertThat(pendingSessions()).isEmpty();
+        assertThat(teamRepository.findMemberCount(teamId)).contains(1);
+    }
+
+    private Long saveTeam(String name) {
+        Long id = teamRepository.save(new Team(name)).getId();
+        teamIds.add(id);
+        return id;
+    }
+
+    private Member findMember(String username) {
+        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+                .setParameter("username", username)
+                .getSingleResult();
+    }
+
+    private Map<?, ?> pendingSessions() {
+        EventListenerRegistry registry = em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        for (Object listener : registry.getEventListenerGroup(EventType.POST_INSERT).listeners()) {
+            if (listener.getClass().getSimpleName().equals("TeamStatisticsListener")) { //entity 패키지 내부 클래스
+                return (Map<?, ?>) ReflectionTestUtils.getField(listener, "pending");
+            }
+        }
+        throw new IllegalStateException("TeamStatisticsListener is not registered");
+    }
+
+    private void inTransaction(Runnable work) {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+}
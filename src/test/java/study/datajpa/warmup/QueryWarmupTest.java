@@ -0,0 +1,58 @@
+package study.datajpa.warmup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import study.datajpa.warmup.QueryWarmupReport.Kind;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//dry-run 설정 때문에 컨텍스트가 따로 뜨므로 DB도 따로 쓴다
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:query-warmup;DB_CLOSE_DELAY=-1",
+        "datajpa.warmup.enabled=true",
+        "datajpa.warmup.dry-run=true"
+})
+class QueryWarmupTest {
+
+    @Autowired QueryWarmup queryWarmup;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    public void warmupOnStartup() {
+        //when
+        QueryWarmupReport report = queryWarmup.getReport();
+
+        //then
+        assertThat(report.getConnections()).isEqualTo(10); //hikari maximum-pool-size 기본값
+        assertThat(report.entry("MemberRepository.findUser").getKind()).isEqualTo(Kind.JPQL);
+        assertThat(report.entry("MemberRepository.findByUsername").getKind()).isEqualTo(Kind.NAMED);
+        assertThat(report.entry("MemberRepository.findByNativeProjection").getKind()).isEqualTo(Kind.NATIVE);
+        assertThat(report.entry("MemberRepository.findByUsernameAndAgeGreaterThan").getKind()).isEqualTo(Kind.DERIVED);
+        assertThat(report.entry("MemberRepository.findByUsernameAndAgeGreaterThan").getDryRunNanos()).isPositive();
+    }
+
+    @Test
+    public void dryRunSkipsWrites() {
+        //when
+        QueryWarmupReport report = queryWarmup.getReport();
+
+        //then
+        assertThat(report.entry("MemberRepository.bulkAgePlus").getSkipped()).isEqualTo("modifying");
+        assertThat(report.entry("MemberRepository.findLockByUsername").getSkipped()).isEqualTo("locking");
+        assertThat(report.getEntries()).noneMatch(entry -> entry.getSkipped() != null && entry.getSkipped().startsWith("failed"));
+    }
+
+    @Test
+    public void preparationTimeIsTimed() {
+        assertThat(meterRegistry.get("datajpa.warmup.query")
+                .tag("method", "MemberRepository.findUser")
+                .tag("phase", "compile")
+                .timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("datajpa.warmup.query")
+                .tag("method", "MemberRepository.findUser")
+                .tag("phase", "dry-run")
+                .timer().count()).isEqualTo(1);
+    }
+}